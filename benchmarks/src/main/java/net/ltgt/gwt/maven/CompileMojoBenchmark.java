@@ -0,0 +1,95 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the staleness check of {@link CompileMojo}, run on every build before deciding whether to compile.
+ * <p>
+ * The output is up to date, so all source files, the output directory and all dependencies are scanned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompileMojoBenchmark {
+  @Param({ "1000", "10000", "40000" })
+  int sourceFiles;
+
+  @Param({ "50", "500" })
+  int artifacts;
+
+  private File basedir;
+  private CompileMojo mojo;
+  private List<String> sourceRoots;
+
+  @Setup
+  public void setUp() throws IOException, ReflectiveOperationException {
+    long lastModified = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+    basedir = Fixtures.createTempDirectory("compile-mojo-benchmark");
+    MavenProject project = Fixtures.createProject(basedir, "app");
+    project.getFile().setLastModified(lastModified);
+    File sourceRoot = new File(basedir, "src/main/java");
+    Fixtures.createSourceTree(sourceRoot, sourceFiles, lastModified);
+    sourceRoots = Collections.singletonList(sourceRoot.getPath());
+    Fixtures.createSourceTree(new File(project.getBuild().getOutputDirectory()), sourceFiles / 10, lastModified);
+
+    Set<Artifact> dependencies = new LinkedHashSet<>();
+    for (int i = 0; i < artifacts; i++) {
+      File jar = Fixtures.createJar(new File(basedir, "repository/lib" + i + ".jar"), 1, null, lastModified);
+      dependencies.add(Fixtures.createArtifact("lib" + i, "jar", Artifact.SCOPE_COMPILE, jar));
+    }
+    project.setArtifacts(dependencies);
+
+    File webappDirectory = new File(basedir, "target/app");
+    File nocacheJs = new File(webappDirectory, "app/app.nocache.js");
+    nocacheJs.getParentFile().mkdirs();
+    nocacheJs.createNewFile();
+
+    mojo = new CompileMojo();
+    mojo.setLog(new SystemStreamLog());
+    Fixtures.setField(mojo, "project", project);
+    Fixtures.setField(mojo, "moduleName", "com.example.App");
+    Fixtures.setField(mojo, "moduleShortName", "app");
+    Fixtures.setField(mojo, "webappDirectory", webappDirectory);
+    Fixtures.setField(mojo, "staleMillis", 0);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Fixtures.deleteRecursively(basedir);
+  }
+
+  @Benchmark
+  public boolean isStale() throws MojoExecutionException {
+    boolean stale = mojo.isStale(sourceRoots);
+    if (stale) {
+      throw new AssertionError("Output should be up to date");
+    }
+    return stale;
+  }
+}
@@ -0,0 +1,99 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the classpath assembly of {@link AbstractDevModeMojo} (here through {@link CodeServerMojo}) for
+ * a reactor of GWT applications, each depending on many JARs and on the {@code gwt-lib} modules of the reactor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DevModeClasspathBenchmark {
+  @Param({ "1", "10" })
+  int projects;
+
+  @Param({ "100", "1000" })
+  int artifacts;
+
+  private File basedir;
+  private CodeServerMojo mojo;
+  private List<MavenProject> projectList;
+  private Set<String> sources;
+
+  @Setup
+  public void setUp() throws IOException, ReflectiveOperationException {
+    basedir = Fixtures.createTempDirectory("devmode-classpath-benchmark");
+    // gwt-lib modules of the reactor, referenced by the applications
+    List<MavenProject> libs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      MavenProject lib = Fixtures.createProject(new File(basedir, "lib" + i), "lib" + i);
+      Artifact artifact = Fixtures.createArtifact("lib" + i, "gwt-lib", Artifact.SCOPE_COMPILE,
+          new File(lib.getBuild().getOutputDirectory()));
+      lib.setArtifact(artifact);
+      libs.add(lib);
+    }
+    projectList = new ArrayList<>();
+    for (int p = 0; p < projects; p++) {
+      MavenProject project = Fixtures.createProject(new File(basedir, "app" + p), "app" + p);
+      Set<Artifact> dependencies = new LinkedHashSet<>();
+      for (MavenProject lib : libs) {
+        dependencies.add(Fixtures.createArtifact(lib.getArtifactId(), "gwt-lib", Artifact.SCOPE_COMPILE,
+            new File(basedir, "repository/" + lib.getArtifactId() + ".jar")));
+        project.getProjectReferences().put(
+            ArtifactUtils.key(lib.getGroupId(), lib.getArtifactId(), lib.getVersion()), lib);
+      }
+      for (int i = 0; i < artifacts; i++) {
+        dependencies.add(Fixtures.createArtifact("dep" + i, "jar",
+            i % 10 == 0 ? Artifact.SCOPE_TEST : Artifact.SCOPE_COMPILE,
+            new File(basedir, "repository/dep" + i + ".jar")));
+      }
+      project.setArtifacts(dependencies);
+      projectList.add(project);
+    }
+    sources = new LinkedHashSet<>();
+    for (MavenProject project : projectList) {
+      sources.add(new File(project.getBasedir(), "src/main/java").getPath());
+    }
+
+    mojo = new CodeServerMojo();
+    mojo.setLog(new SystemStreamLog());
+    Fixtures.setField(mojo, "classpathScope", Artifact.SCOPE_RUNTIME);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Fixtures.deleteRecursively(basedir);
+  }
+
+  @Benchmark
+  public Set<String> buildClasspath() {
+    return mojo.buildClasspath(projectList, sources);
+  }
+}
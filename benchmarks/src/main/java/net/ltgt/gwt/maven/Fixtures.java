@@ -0,0 +1,134 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Creates the files and Maven objects the benchmarks run against.
+ */
+class Fixtures {
+  private Fixtures() {}
+
+  /**
+   * Creates {@code count} Java source files, 100 per package, in the given directory.
+   */
+  static void createSourceTree(File root, int count, long lastModified) throws IOException {
+    for (int i = 0; i < count; i++) {
+      File dir = new File(root, "com/example/pkg" + (i / 100));
+      dir.mkdirs();
+      File file = new File(dir, "Class" + i + ".java");
+      Files.write(file.toPath(), ("package com.example.pkg" + (i / 100) + ";\nclass Class" + i + " {}\n")
+          .getBytes(StandardCharsets.UTF_8));
+      file.setLastModified(lastModified);
+    }
+  }
+
+  /**
+   * Creates a JAR with {@code entries} class files, and a {@code META-INF/gwt/mainModule} file when
+   * {@code mainModule} is not {@code null}.
+   */
+  static File createJar(File file, int entries, String mainModule, long lastModified) throws IOException {
+    file.getParentFile().mkdirs();
+    try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(file.toPath()))) {
+      for (int i = 0; i < entries; i++) {
+        jar.putNextEntry(new JarEntry("com/example/" + file.getName().replace(".jar", "") + "/Class" + i + ".class"));
+        jar.write(new byte[512]);
+        jar.closeEntry();
+      }
+      if (mainModule != null) {
+        jar.putNextEntry(new JarEntry("META-INF/gwt/mainModule"));
+        jar.write(("# generated\n" + mainModule + "\n").getBytes(StandardCharsets.UTF_8));
+        jar.closeEntry();
+      }
+    }
+    file.setLastModified(lastModified);
+    return file;
+  }
+
+  static Artifact createArtifact(String artifactId, String type, String scope, File file) {
+    DefaultArtifactHandler handler = new DefaultArtifactHandler(type);
+    handler.setExtension("jar");
+    handler.setAddedToClasspath(true);
+    Artifact artifact = new DefaultArtifact("com.example", artifactId, "1.0", scope, type, null, handler);
+    artifact.setFile(file);
+    return artifact;
+  }
+
+  static MavenProject createProject(File basedir, String artifactId) throws IOException {
+    Model model = new Model();
+    model.setGroupId("com.example");
+    model.setArtifactId(artifactId);
+    model.setVersion("1.0");
+    model.setPackaging("gwt-app");
+    Build build = new Build();
+    build.setDirectory(new File(basedir, "target").getPath());
+    build.setOutputDirectory(new File(basedir, "target/classes").getPath());
+    model.setBuild(build);
+    MavenProject project = new MavenProject(model);
+    File pom = new File(basedir, "pom.xml");
+    basedir.mkdirs();
+    try (OutputStream out = Files.newOutputStream(pom.toPath())) {
+      out.write("<project/>".getBytes(StandardCharsets.UTF_8));
+    }
+    project.setFile(pom);
+    new File(build.getOutputDirectory()).mkdirs();
+    return project;
+  }
+
+  /**
+   * Sets a (generally private) field of a mojo, as Maven would do when configuring it.
+   */
+  static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+    for (Class<?> cls = target.getClass(); cls != null; cls = cls.getSuperclass()) {
+      try {
+        Field field = cls.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      } catch (NoSuchFieldException e) {
+        // continue with superclass
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+
+  static File createTempDirectory(String prefix) throws IOException {
+    return Files.createTempDirectory(prefix).toFile();
+  }
+
+  static void deleteRecursively(File dir) throws IOException {
+    if (dir == null || !dir.exists()) {
+      return;
+    }
+    Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
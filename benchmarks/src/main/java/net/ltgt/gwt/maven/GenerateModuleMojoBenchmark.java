@@ -0,0 +1,92 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the lookup of {@code META-INF/gwt/mainModule} in the dependencies by {@link GenerateModuleMojo}.
+ * <p>
+ * One JAR in ten contains a {@code META-INF/gwt/mainModule} file, as would be the case for a project depending on a
+ * few {@code gwt-lib} and many plain libraries. The lookup is measured with an empty cache (first build, or all
+ * dependencies changed) and with a cache populated by a previous build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerateModuleMojoBenchmark {
+  @Param({ "100", "500" })
+  int artifacts;
+
+  @Param({ "10", "1000" })
+  int entriesPerJar;
+
+  private File basedir;
+  private GenerateModuleMojo mojo;
+  private MainModuleCache warmCache;
+
+  @Setup
+  public void setUp() throws IOException, ReflectiveOperationException, MojoExecutionException {
+    basedir = Fixtures.createTempDirectory("generate-module-benchmark");
+    long lastModified = System.currentTimeMillis();
+    Set<Artifact> dependencyArtifacts = new LinkedHashSet<>();
+    for (int i = 0; i < artifacts; i++) {
+      File jar = Fixtures.createJar(new File(basedir, "repository/lib" + i + ".jar"), entriesPerJar,
+          i % 10 == 0 ? "com.example.lib" + i + ".Lib" : null, lastModified);
+      dependencyArtifacts.add(Fixtures.createArtifact("lib" + i, i % 10 == 0 ? "gwt-lib" : "jar",
+          Artifact.SCOPE_COMPILE, jar));
+    }
+
+    mojo = new GenerateModuleMojo();
+    mojo.setLog(new SystemStreamLog());
+    Fixtures.setField(mojo, "project", Fixtures.createProject(new File(basedir, "app"), "app"));
+    Fixtures.setField(mojo, "dependencyArtifacts", dependencyArtifacts);
+
+    warmCache = new MainModuleCache();
+    mojo.getInheritsFromDependencies(warmCache);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Fixtures.deleteRecursively(basedir);
+  }
+
+  @Benchmark
+  public List<String> coldCache() throws MojoExecutionException {
+    return check(mojo.getInheritsFromDependencies(new MainModuleCache()));
+  }
+
+  @Benchmark
+  public List<String> warmCache() throws MojoExecutionException {
+    return check(mojo.getInheritsFromDependencies(warmCache));
+  }
+
+  private List<String> check(List<String> inherits) {
+    if (inherits.size() != (artifacts + 9) / 10) {
+      throw new AssertionError("Unexpected inherits: " + inherits);
+    }
+    return inherits;
+  }
+}
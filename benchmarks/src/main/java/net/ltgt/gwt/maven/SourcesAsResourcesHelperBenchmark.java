@@ -0,0 +1,60 @@
+package net.ltgt.gwt.maven;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link SourcesAsResourcesHelper#filterSourceRoots}, run by most goals of the plugin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SourcesAsResourcesHelperBenchmark {
+  @Param({ "5", "50" })
+  int sourceRoots;
+
+  @Param({ "5", "50" })
+  int resources;
+
+  private final Log log = new SystemStreamLog();
+  private List<Resource> resourceList;
+  private List<String> sourceRootList;
+
+  @Setup
+  public void setUp() {
+    resourceList = new ArrayList<>();
+    for (int i = 0; i < resources; i++) {
+      Resource resource = new Resource();
+      resource.setDirectory("/workspace/project/src/main/resources" + i);
+      resourceList.add(resource);
+    }
+    sourceRootList = new ArrayList<>();
+    for (int i = 0; i < sourceRoots; i++) {
+      sourceRootList.add("/workspace/project/target/generated-sources/source" + i);
+    }
+  }
+
+  @Benchmark
+  public List<String> filterSourceRoots() {
+    return SourcesAsResourcesHelper.filterSourceRoots(log, resourceList, sourceRootList);
+  }
+}
@@ -0,0 +1,51 @@
+try {
+  File target = new File(basedir, "target")
+
+  String buildLog = new File(basedir, "build.log").text
+  // First run: one suite for the module with two test classes
+  if (!buildLog.contains("Grouped 2 test classes into 1 module suites")) {
+    System.err.println("Tests were not grouped by module in first run")
+    return false
+  }
+  // Second run: modules balanced across the two forks from the recorded timings
+  if (!buildLog.contains("Grouped 4 test classes into 2 module suites")) {
+    System.err.println("Tests were not balanced across forks in second run")
+    return false
+  }
+  // Both runs: the module suites along with the tests that were not grouped, in a single Surefire run
+  List<String> results = (buildLog =~ /(?m)^\[INFO\] Tests run: (\d+), Failures: 0, Errors: 0, Skipped: 0$/).collect { it[1] }
+  if (results != ["4", "4"]) {
+    System.err.println("build.log does not talk about running tests: " + results)
+    return false
+  }
+
+  File statistics = new File(target, "gwt-tests/test-statistics")
+  if (!statistics.isFile()) {
+    System.err.println("Test statistics are missing")
+    return false
+  }
+  List<String> modules = statistics.readLines().findAll { it.startsWith("module\t") }
+  if (modules.size() != 3) {
+    System.err.println("Test statistics do not record the compile time of the 3 modules: " + modules)
+    return false
+  }
+
+  Set<String> testClasses = new TreeSet<>()
+  for (String batch : ["Batch1", "Batch2"]) {
+    File report = new File(target, "surefire-reports/TEST-net.ltgt.gwt.maven.modules." + batch + ".xml")
+    if (!report.isFile()) {
+      System.err.println("Missing test report for " + batch)
+      return false
+    }
+    (report.text =~ /<testcase [^>]*classname="([^"]+)"/).each { testClasses.add(it[1]) }
+  }
+  if (testClasses.size() != 4) {
+    System.err.println("Batches do not run all test classes: " + testClasses)
+    return false
+  }
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
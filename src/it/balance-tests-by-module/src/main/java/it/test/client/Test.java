@@ -0,0 +1,7 @@
+package it.test.client;
+
+public class Test {
+  public static String greet(String name) {
+    return "Hello " + name;
+  }
+}
@@ -0,0 +1,14 @@
+package it.test.client;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class AnotherCase extends GWTTestCase {
+  @Override
+  public String getModuleName() {
+    return "it.test.Another";
+  }
+
+  public void testGreet() {
+    assertEquals("Hello Another", Test.greet("Another"));
+  }
+}
@@ -0,0 +1,14 @@
+package it.test.client;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class OtherCase extends GWTTestCase {
+  @Override
+  public String getModuleName() {
+    return "it.test.Other";
+  }
+
+  public void testGreet() {
+    assertEquals("Hello Other", Test.greet("Other"));
+  }
+}
@@ -0,0 +1,33 @@
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (buildLog.count("Compiling module it.test.Test") != 2) {
+    System.err.println("build.log does not talk about compiling GWT module twice")
+    return false
+  }
+  if (!buildLog.contains("Creating class data sharing archive")) {
+    System.err.println("build.log does not talk about creating the class data sharing archive")
+    return false
+  }
+  if (buildLog.contains("Could not create class data sharing archive")) {
+    System.err.println("build.log talks about failing to create the class data sharing archive")
+    return false
+  }
+
+  File[] archives = new File(basedir, "target/gwt/cds").listFiles({ dir, name -> name.endsWith(".jsa") } as FilenameFilter)
+  if (archives == null || archives.length != 1) {
+    System.err.println("class data sharing archive is missing.")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
@@ -0,0 +1,31 @@
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (buildLog.count("Compiling module it.test.Test") != 2) {
+    System.err.println("build.log does not talk about compiling GWT module twice")
+    return false
+  }
+
+  File[] argfiles = new File(basedir, "target/gwt/classpath").listFiles()
+  if (argfiles == null || argfiles.length != 1 || !argfiles[0].name.endsWith(".args")) {
+    System.err.println("argument file is missing, or hasn't been reused.")
+    return false
+  }
+
+  File nocacheJs = new File(basedir, "target/gwt-application-1.0/test/test.nocache.js")
+  if (!nocacheJs.isFile()) {
+    System.err.println("test.nocache.js file is missing.")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
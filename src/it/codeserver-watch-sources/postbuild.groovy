@@ -0,0 +1,24 @@
+try {
+  String watchLog = new File(basedir, "watch.log").text
+  if (!watchLog.contains("CodeServer up: true")) {
+    System.err.println("CodeServer did not start: " + watchLog)
+    return false
+  }
+
+  String buildLog = new File(basedir, "build.log").text
+  if (!(buildLog =~ /Watching \d+ directories of CodeServer sources/)) {
+    System.err.println("CodeServer sources were not watched")
+    return false
+  }
+  // The CodeServer was reached at 127.0.0.1 from -bindAddress 0.0.0.0, and the saves were debounced
+  int recompiles = (buildLog =~ /Recompiled test in \d+ ms/).count
+  if (recompiles != 1) {
+    System.err.println("Modules were recompiled " + recompiles + " times rather than once")
+    return false
+  }
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
@@ -0,0 +1,47 @@
+// Once the CodeServer is up, saves a source file several times in a row, waits for the modules to be recompiled,
+// then stops the CodeServer. The outcome is checked by postbuild.groovy.
+File source = new File(basedir, "src/main/java/it/test/client/Test.java")
+File buildLog = new File(basedir, "build.log")
+File watchLog = new File(basedir, "watch.log")
+
+Thread.startDaemon("codeserver-watch-sources") {
+  try {
+    long deadline = System.currentTimeMillis() + 5 * 60 * 1000
+    boolean up = false
+    while (!up && System.currentTimeMillis() < deadline) {
+      try {
+        new URL("http://127.0.0.1:19876/").text
+        up = true
+      } catch (IOException e) {
+        sleep(500)
+      }
+    }
+    watchLog << "CodeServer up: " + up + "\n"
+    if (up) {
+      // Saving several times within the watch delay should only recompile once
+      3.times { i ->
+        source << "// edit " + i + "\n"
+        sleep(100)
+      }
+      while (!(buildLog.text =~ /Recompiled \S+ in/) && System.currentTimeMillis() < deadline) {
+        sleep(500)
+      }
+      // Leave time for an unexpected second recompile
+      sleep(5000)
+    }
+  } catch (Throwable t) {
+    watchLog << t.toString() + "\n"
+  } finally {
+    ProcessHandle.allProcesses()
+        .filter { p ->
+          String commandLine = p.info().commandLine().orElse("")
+          commandLine.contains("com.google.gwt.dev.codeserver.CodeServer") && commandLine.contains(basedir.path)
+        }
+        .forEach { p ->
+          watchLog << "Stopping CodeServer " + p.pid() + "\n"
+          p.destroy()
+        }
+  }
+}
+
+return true
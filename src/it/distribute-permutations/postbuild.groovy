@@ -0,0 +1,32 @@
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (!buildLog.contains("Compiling permutations with up to")) {
+    System.err.println("build.log does not talk about distributing permutations")
+    return false
+  }
+  if (!buildLog.contains("Precompilation (minimal) succeeded, number of permutations: 2")) {
+    System.err.println("build.log does not talk about precompiling GWT module")
+    return false
+  }
+  if (!buildLog.contains("Link succeeded")) {
+    System.err.println("build.log does not talk about linking GWT module")
+    return false
+  }
+
+  if (!new File(basedir, "target/gwt-application-1.0/test/test.nocache.js").exists()) {
+    System.err.println("GWT module has not been compiled.")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
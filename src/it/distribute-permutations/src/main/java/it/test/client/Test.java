@@ -0,0 +1,11 @@
+package it.test.client;
+
+import com.google.gwt.core.client.EntryPoint;
+
+public class Test implements EntryPoint {
+
+  @Override
+  public void onModuleLoad() {
+    // So what?
+  }
+}
@@ -0,0 +1,36 @@
+try {
+  File report = new File(basedir, "target/gwt/reports/it.test.Test-Compiler.json")
+  if (!report.isFile()) {
+    System.err.println("Report is missing.")
+    return false
+  }
+  def json = new groovy.json.JsonSlurper().parse(report)
+  if (json.exitCode != 0 || json.mainClass != "com.google.gwt.dev.Compiler") {
+    System.err.println("Unexpected report: " + report.text)
+    return false
+  }
+  for (String metric : [ "wallTimeMillis", "cpuTimeMillis", "gcTimeMillis", "peakHeapBytes" ]) {
+    if (!(json[metric] instanceof Number)) {
+      System.err.println("Missing " + metric + " in report: " + report.text)
+      return false
+    }
+  }
+  if (json.phases*.name != [ "startup", "precompile", "compilePermutations", "link", "exit" ]) {
+    System.err.println("Unexpected phases in report: " + report.text)
+    return false
+  }
+  if (new File(basedir, "target/gwt/reports/it.test.Test-Compiler.metrics").exists()) {
+    System.err.println("Metrics file has not been deleted.")
+    return false
+  }
+
+  File aggregate = new File(basedir, "target/gwt/reports.jsonl")
+  if (!aggregate.isFile() || aggregate.readLines().size() != 1) {
+    System.err.println("Aggregate report is missing or doesn't have exactly one line.")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
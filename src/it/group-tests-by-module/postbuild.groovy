@@ -0,0 +1,51 @@
+try {
+  File target = new File(basedir, "target")
+
+  String buildLog = new File(basedir, "build.log").text
+  if (!buildLog.contains("Grouped 3 test classes into 1 module suites")) {
+    System.err.println("Tests were not grouped by module")
+    return false
+  }
+  if (!buildLog.contains("Tests run: 3, Failures: 0, Errors: 0, Skipped: 0")) {
+    System.err.println("build.log does not talk about running the module suites")
+    return false
+  }
+  if (!(buildLog =~ /Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: .* -- in it\.test\.server\.PlainCase/)) {
+    System.err.println("build.log does not talk about running the tests that were not grouped")
+    return false
+  }
+  if (!buildLog.contains("Tests run: 4, Failures: 0, Errors: 0, Skipped: 0")) {
+    System.err.println("Module suites and tests that were not grouped were not run together")
+    return false
+  }
+
+  File[] compiled = new File(target, "gwt-tests/www").listFiles().findAll {
+    new File(it, "it.test.Test.JUnit").isDirectory()
+  }
+  if (compiled.size() != 1) {
+    System.err.println("Test module was compiled by " + compiled.size() + " forks")
+    return false
+  }
+
+  if (!new File(target, "surefire-reports/TEST-net.ltgt.gwt.maven.modules.it_test_Test.xml").isFile()) {
+    System.err.println("Missing test report for the module suite")
+    return false
+  }
+  if (!new File(target, "surefire-reports/TEST-it.test.server.PlainCase.xml").isFile()) {
+    System.err.println("Missing test report for the test that was not grouped")
+    return false
+  }
+  if (new File(target, "test-classes/net/ltgt/gwt/maven/modules").exists()) {
+    System.err.println("Module suites were generated in the test classes directory")
+    return false
+  }
+  if (new File(target, "gwt-tests/suites").exists()) {
+    System.err.println("Generated module suites were not deleted")
+    return false
+  }
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
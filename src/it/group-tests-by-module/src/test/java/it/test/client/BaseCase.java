@@ -0,0 +1,10 @@
+package it.test.client;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public abstract class BaseCase extends GWTTestCase {
+  @Override
+  public String getModuleName() {
+    return "it.test.Test";
+  }
+}
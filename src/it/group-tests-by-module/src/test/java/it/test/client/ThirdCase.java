@@ -0,0 +1,7 @@
+package it.test.client;
+
+public class ThirdCase extends BaseCase {
+  public void testGreet() {
+    assertEquals("Hello Third", Test.greet("Third"));
+  }
+}
@@ -0,0 +1,9 @@
+package it.test.server;
+
+import junit.framework.TestCase;
+
+public class PlainCase extends TestCase {
+  public void testPlain() {
+    assertEquals(4, 2 + 2);
+  }
+}
@@ -0,0 +1,62 @@
+import java.util.jar.JarFile
+
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (!(buildLog =~ /Updating jar: .* \(0 added, 2 changed, 0 removed, \d+ unchanged\)/)) {
+    System.err.println("build.log does not talk about updating the JAR incrementally")
+    return false
+  }
+
+  if (!(buildLog =~ /gwt-library-1\.0\.jar is up to date; skipping\./)) {
+    System.err.println("build.log does not talk about the JAR being up to date")
+    return false
+  }
+  if ((buildLog =~ /Building jar: .*gwt-library-1\.0\.jar/).count != 2) {
+    System.err.println("build.log does not talk about rebuilding the JAR when forced")
+    return false
+  }
+
+  File jar = new File(basedir, "target/gwt-library-1.0.jar")
+  if (!new File(basedir, "target/gwt-library-1.0.jar.index").isFile()) {
+    System.err.println("JAR index is missing.")
+    return false
+  }
+
+  JarFile jarFile = new JarFile(jar)
+  try {
+    // Reading every entry checks their CRC, including those copied from the previous JAR
+    for (entry in jarFile.entries()) {
+      jarFile.getInputStream(entry).bytes
+    }
+    if (jarFile.getManifest() == null) {
+      System.err.println("JAR has no manifest.")
+      return false
+    }
+    if (!jarFile.getInputStream(jarFile.getEntry("it/testlib/client/TestLib.java")).text.contains("Now what?")) {
+      System.err.println("JAR has not been updated.")
+      return false
+    }
+    if (jarFile.getEntry("META-INF/maven/net.ltgt.gwt.maven.its/gwt-library/pom.properties") == null) {
+      System.err.println("JAR has no Maven descriptor.")
+      return false
+    }
+    if (jarFile.getEntry("it/testlib/TestLib.gwt.xml") == null) {
+      System.err.println("JAR has no GWT module.")
+      return false
+    }
+  } finally {
+    jarFile.close()
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
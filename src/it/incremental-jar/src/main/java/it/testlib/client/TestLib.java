@@ -0,0 +1,10 @@
+package it.testlib.client;
+
+import com.google.gwt.user.client.Window;
+
+public class TestLib {
+
+  public void doSomeThing() {
+    Window.alert("So what?");
+  }
+}
@@ -0,0 +1,37 @@
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (!(buildLog =~ /\[INFO\] Using \d+ local workers: \d+ CPU cores shared by 1 GWT compilation\(s\)/)) {
+    System.err.println("build.log does not explain the number of local workers")
+    return false
+  }
+  // The second build is up to date, and doesn't compute the number of local workers
+  if ((buildLog =~ /:compile \(default-compile\) @ [^\n]*\n\[INFO\] Using \d+ local workers/).count != 1) {
+    System.err.println("build.log does not explain the number of local workers for the first compilation only")
+    return false
+  }
+  if (!buildLog.contains("GWT compilation skipped")) {
+    System.err.println("build.log does not talk about skipping the second GWT compilation")
+    return false
+  }
+  if (!buildLog.contains("[INFO]    Compilation succeeded")) {
+    System.err.println("build.log does not talk about GWT compilation succeeding")
+    return false
+  }
+
+  if (!new File(basedir, "target/gwt-application-1.0/test/test.nocache.js").exists()) {
+    System.err.println("GWT module has not been compiled.")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
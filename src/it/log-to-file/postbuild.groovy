@@ -0,0 +1,33 @@
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  File logFile = new File(basedir, "target/gwt/logs/it.test.Test-Compiler.log")
+  if (!logFile.isFile()) {
+    System.err.println("it.test.Test-Compiler.log file is missing.")
+    return false
+  }
+  if (!logFile.text.contains("Compiling module it.test.Test")) {
+    System.err.println("it.test.Test-Compiler.log does not talk about compiling GWT module")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (!buildLog.contains("Output written to " + logFile.getCanonicalFile())) {
+    System.err.println("build.log does not talk about writing the output to a file")
+    return false
+  }
+  if (!(buildLog =~ /\d+ lines of output not logged, above the limit of 1 lines per second/)) {
+    System.err.println("build.log does not talk about lines not logged")
+    return false
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
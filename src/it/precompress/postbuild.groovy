@@ -0,0 +1,53 @@
+import java.util.jar.JarFile
+import java.util.zip.GZIPInputStream
+import java.util.zip.ZipEntry
+
+try {
+  File buildLogFile = new File(basedir, "build.log")
+  if (!buildLogFile.exists() || buildLogFile.isDirectory()) {
+    System.err.println("build.log file is missing or a directory.")
+    return false
+  }
+
+  String buildLog = buildLogFile.text
+  if (!(buildLog =~ /Precompressed 0 files, [1-9]\d* up to date/)) {
+    System.err.println("build.log does not talk about precompressed files being up to date")
+    return false
+  }
+
+  File nocacheJs = new File(basedir, "target/gwt-application-1.0/test/test.nocache.js")
+  File nocacheJsGz = new File(basedir, "target/gwt-application-1.0/test/test.nocache.js.gz")
+  if (!nocacheJsGz.isFile()) {
+    System.err.println("test.nocache.js has not been precompressed.")
+    return false
+  }
+  if (new GZIPInputStream(new FileInputStream(nocacheJsGz)).bytes != nocacheJs.bytes) {
+    System.err.println("test.nocache.js.gz does not match test.nocache.js.")
+    return false
+  }
+
+  JarFile jarFile = new JarFile(new File(basedir, "target/gwt-application-1.0.war"))
+  try {
+    if (jarFile.getEntry("test/test.nocache.js.gz") == null) {
+      System.err.println("test/test.nocache.js.gz missing from WAR")
+      return false
+    }
+    if (jarFile.getEntry("test/test.nocache.js.gz").method != ZipEntry.STORED
+        || jarFile.getEntry("test/clear.cache.gif").method != ZipEntry.STORED) {
+      System.err.println("Precompressed files and images are compressed again in the WAR")
+      return false
+    }
+    if (jarFile.getEntry("test/test.nocache.js").method != ZipEntry.DEFLATED) {
+      System.err.println("test/test.nocache.js is not compressed in the WAR")
+      return false
+    }
+  } finally {
+    jarFile.close()
+  }
+
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
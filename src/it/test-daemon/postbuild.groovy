@@ -0,0 +1,25 @@
+try {
+  String buildLog = new File(basedir, "build.log").text
+  int started = (buildLog =~ /Starting GWT test daemon/).size()
+  if (started != 1) {
+    System.err.println("Test daemon started " + started + " times")
+    return false
+  }
+  if (!buildLog.contains("OK (3 tests)")) {
+    System.err.println("build.log does not talk about running all tests")
+    return false
+  }
+  if (!buildLog.contains("OK (1 test)")) {
+    System.err.println("build.log does not talk about running the selected test")
+    return false
+  }
+  if (new File(basedir, "target/surefire-reports").exists()) {
+    System.err.println("Surefire forks have been used")
+    return false
+  }
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
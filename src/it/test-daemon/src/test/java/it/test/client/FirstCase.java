@@ -0,0 +1,14 @@
+package it.test.client;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class FirstCase extends GWTTestCase {
+  @Override
+  public String getModuleName() {
+    return "it.test.Test";
+  }
+
+  public void testGreet() {
+    assertEquals("Hello First", Test.greet("First"));
+  }
+}
@@ -0,0 +1,18 @@
+package it.test.client;
+
+import com.google.gwt.junit.client.GWTTestCase;
+
+public class SecondCase extends GWTTestCase {
+  @Override
+  public String getModuleName() {
+    return "it.test.Test";
+  }
+
+  public void testGreet() {
+    assertEquals("Hello Second", Test.greet("Second"));
+  }
+
+  public void testGreetEmpty() {
+    assertEquals("Hello ", Test.greet(""));
+  }
+}
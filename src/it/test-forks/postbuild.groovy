@@ -0,0 +1,41 @@
+try {
+  File target = new File(basedir, "target")
+
+  File www = new File(target, "gwt-tests/www")
+  if (new File(www, "it.test.Test.JUnit").exists()) {
+    System.err.println("Forks wrote into the shared output directory")
+    return false
+  }
+  File[] forkDirs = www.listFiles({ it.isDirectory() && it.name.matches("fork-\\d+") } as FileFilter)
+  if (forkDirs == null || forkDirs.length == 0) {
+    System.err.println("Forks did not write into their own output directory")
+    return false
+  }
+  for (File forkDir : forkDirs) {
+    if (!new File(forkDir, "it.test.Test.JUnit").isDirectory()) {
+      System.err.println("Missing test module output in " + forkDir)
+      return false
+    }
+  }
+
+  File[] unitCaches = new File(target, "gwt-tests/unitCache").listFiles()
+  if (unitCaches == null || unitCaches.length != 1) {
+    System.err.println("Forks did not share a single unit cache directory")
+    return false
+  }
+  if (!unitCaches[0].listFiles().any { it.name.startsWith("gwt-unitCache") }) {
+    System.err.println("Unit cache directory is empty")
+    return false
+  }
+
+  String buildLog = new File(basedir, "build.log").text
+  if (!buildLog.contains("Tests run: 2, Failures: 0, Errors: 0, Skipped: 0")) {
+    System.err.println("build.log does not talk about running tests")
+    return false
+  }
+} catch (Throwable t) {
+  t.printStackTrace()
+  return false
+}
+
+return true
@@ -0,0 +1,15 @@
+package it.test;
+
+import it.test.client.FirstCase;
+
+import com.google.gwt.junit.tools.GWTTestSuite;
+
+import junit.framework.Test;
+
+public class FirstSuite {
+  public static Test suite() {
+    GWTTestSuite suite = new GWTTestSuite("First test suite");
+    suite.addTestSuite(FirstCase.class);
+    return suite;
+  }
+}
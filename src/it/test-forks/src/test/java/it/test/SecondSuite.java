@@ -0,0 +1,15 @@
+package it.test;
+
+import it.test.client.SecondCase;
+
+import com.google.gwt.junit.tools.GWTTestSuite;
+
+import junit.framework.Test;
+
+public class SecondSuite {
+  public static Test suite() {
+    GWTTestSuite suite = new GWTTestSuite("Second test suite");
+    suite.addTestSuite(SecondCase.class);
+    return suite;
+  }
+}
@@ -5,11 +5,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.inject.Inject;
 
@@ -27,6 +30,7 @@ import org.apache.maven.toolchain.ToolchainManager;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.jspecify.annotations.Nullable;
 
 public abstract class AbstractDevModeMojo extends AbstractMojo {
 
@@ -110,6 +114,61 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
   @Parameter
   protected Map<String, String> systemProperties;
 
+  /**
+   * Use a class data sharing archive of gwt-dev and its dependencies to speed up the startup of the forked JVM.
+   * <p>
+   * The archive is created under {@code ${project.build.directory}/gwt/cds} from the classes loaded by a first run,
+   * and regenerated whenever the Java executable, the gwt-dev classpath or the JVM options change.
+   * gwt-dev and its dependencies are moved to the front of the classpath. Requires Java 11 or later.
+   */
+  @Parameter(property = "gwt.classDataSharing", defaultValue = "false")
+  protected boolean classDataSharing;
+
+  /**
+   * Pass the classpath to the forked JVM in a JDK argument file, rather than in the {@code CLASSPATH} environment
+   * variable. Requires Java 9 or later.
+   * <p>
+   * Large classpaths make for huge environments, which slow down launching the JVM, or even make it fail on some
+   * systems. The files are written to {@code ${project.build.directory}/gwt/classpath}, and reused as long as the
+   * classpath doesn't change.
+   */
+  @Parameter(property = "gwt.classpathFile", defaultValue = "false")
+  protected boolean classpathFile;
+
+  /**
+   * Write the output of each forked JVM to a file in {@code ${project.build.directory}/gwt/logs}, rather than to the
+   * Maven log. Only errors and warnings are logged, followed by the path of the file.
+   */
+  @Parameter(property = "gwt.logToFile", defaultValue = "false")
+  protected boolean logToFile;
+
+  /**
+   * The maximum number of lines of output of the forked JVM to log per second, or {@code 0} for no limit. Other lines
+   * are dropped, except errors and warnings, and counted once the JVM exits. Ignored when {@link #logToFile logging
+   * to files}.
+   */
+  @Parameter(property = "gwt.logRateLimit", defaultValue = "0")
+  protected int logRateLimit;
+
+  /**
+   * Write a JSON report for the forked JVM to {@code ${project.build.directory}/gwt/reports}, with its wall-clock time,
+   * CPU time, GC time, peak heap and resident memory, and the timings of the compilation phases.
+   * <p>
+   * The report is written when the JVM exits, so it covers the whole session, and is only written if Maven is still
+   * running by then (i.e. not when both are interrupted at once with Ctrl+C).
+   */
+  @Parameter(property = "gwt.writeReports", defaultValue = "false")
+  protected boolean writeReports;
+
+  /**
+   * Also append the report to {@code gwt/reports.jsonl} in the build directory of the top-level project. The file is
+   * overwritten by each build.
+   * <p>
+   * Only applies when {@link #writeReports} is {@code true}.
+   */
+  @Parameter(property = "gwt.aggregateReports", defaultValue = "false")
+  protected boolean aggregateReports;
+
   @Parameter(defaultValue = "${reactorProjects}", required = true, readonly = true)
   protected List<MavenProject> reactorProjects;
 
@@ -176,33 +235,22 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
       throw new MojoExecutionException("No project found");
     }
 
-    List<String> moduleList = new ArrayList<>();
-    if (StringUtils.isBlank(modules)) {
-      List<String> nonGwtProjects = new ArrayList<>();
-      for (MavenProject p : projectList) {
-        Xpp3Dom configuration = p.getGoalConfiguration(pluginDescriptor.getGroupId(), pluginDescriptor.getArtifactId(), null, null);
-        if (configuration == null) {
-          nonGwtProjects.add(ArtifactUtils.versionlessKey(p.getGroupId(), p.getArtifactId()));
-        } else {
-          moduleList.add(configuration.getChild("moduleName").getValue());
-        }
-      }
-      if (!nonGwtProjects.isEmpty()) {
-        getLog().warn("Found projects without the gwt-maven-plugin's moduleName when discovering GWT modules; they've been ignored: "
-            + StringUtils.join(nonGwtProjects.iterator(), ", "));
-      }
+    File launchPlanFile = getLaunchPlanFile();
+    String launchPlanKey = getLaunchPlanKey();
+    LaunchPlan launchPlan = readLaunchPlan(launchPlanFile, launchPlanKey);
+    if (launchPlan != null) {
+      getLog().debug("Reusing launch plan from " + launchPlanFile);
     } else {
-      moduleList.addAll(Arrays.asList(StringUtils.split(modules, ",")));
-    }
-
-    if (moduleList.isEmpty()) {
-      throw new MojoExecutionException("No module found");
-    }
-
-    LinkedHashSet<String> sources = new LinkedHashSet<>();
-    for (MavenProject p : projectList) {
-      addSources(p, sources);
+      launchPlan = resolveLaunchPlan(launchPlanKey, projectList);
+      try {
+        launchPlan.write(launchPlanFile);
+      } catch (IOException e) {
+        getLog().warn("Could not write " + launchPlanFile + ": " + e.getMessage());
+        launchPlanFile.delete();
+      }
     }
+    List<String> moduleList = launchPlan.modules;
+    LinkedHashSet<String> sources = launchPlan.sources;
 
     List<String> args = new ArrayList<>();
     if (jvmArgs != null) {
@@ -235,6 +283,157 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
     args.addAll(getSpecificArguments(sources));
     args.addAll(moduleList);
 
+    LinkedHashSet<String> cp = launchPlan.classpath;
+
+    try {
+      FileUtils.forceMkdir(new File(project.getBuild().getDirectory()));
+      FileUtils.forceMkdir(getWorkDir());
+      forceMkdirs();
+    } catch (IOException ioe) {
+      throw new MojoFailureException(ioe.getMessage(), ioe);
+    }
+
+    CommandLine commandLine = new CommandLine(getLog(), project, session, toolchainManager, jdkToolchain, jvm);
+    if (classpathFile) {
+      commandLine.setClasspathFile(new ClasspathFile(new File(project.getBuild().getDirectory(), "gwt/classpath")));
+    }
+    commandLine.setLogging(logToFile ? new File(project.getBuild().getDirectory(), "gwt/logs") : null, logRateLimit);
+    if (writeReports) {
+      commandLine.setReports(new File(project.getBuild().getDirectory(), "gwt/reports"),
+          aggregateReports
+              ? new File(session.getTopLevelProject().getBuild().getDirectory(), "gwt/reports.jsonl")
+              : null);
+    }
+    if (classDataSharing) {
+      commandLine.setClassDataSharing(new ClassDataSharing(getLog(),
+          new File(project.getBuild().getDirectory(), "gwt/cds"),
+          ClassDataSharing.getGwtDevClasspath(project.getArtifacts(), new ScopeArtifactFilter(classpathScope)),
+          jvmArgs == null ? Collections.<String>emptyList() : jvmArgs));
+    }
+    launch(commandLine, cp, args, projectList, sources);
+  }
+
+  /**
+   * Runs the forked JVM, until it exits.
+   */
+  void launch(CommandLine commandLine, LinkedHashSet<String> classpath, List<String> args,
+      List<MavenProject> projectList, Set<String> sources) throws MojoExecutionException {
+    commandLine.execute(classpath, args);
+  }
+
+  /**
+   * Discovers the modules, and resolves the source roots and classpath of the given projects.
+   */
+  private LaunchPlan resolveLaunchPlan(String key, List<MavenProject> projectList) throws MojoExecutionException {
+    List<String> moduleList = new ArrayList<>();
+    if (StringUtils.isBlank(modules)) {
+      List<String> nonGwtProjects = new ArrayList<>();
+      for (MavenProject p : projectList) {
+        Xpp3Dom configuration = p.getGoalConfiguration(pluginDescriptor.getGroupId(), pluginDescriptor.getArtifactId(), null, null);
+        if (configuration == null) {
+          nonGwtProjects.add(ArtifactUtils.versionlessKey(p.getGroupId(), p.getArtifactId()));
+        } else {
+          moduleList.add(configuration.getChild("moduleName").getValue());
+        }
+      }
+      if (!nonGwtProjects.isEmpty()) {
+        getLog().warn("Found projects without the gwt-maven-plugin's moduleName when discovering GWT modules; they've been ignored: "
+            + StringUtils.join(nonGwtProjects.iterator(), ", "));
+      }
+    } else {
+      moduleList.addAll(Arrays.asList(StringUtils.split(modules, ",")));
+    }
+
+    if (moduleList.isEmpty()) {
+      throw new MojoExecutionException("No module found");
+    }
+
+    LinkedHashSet<String> sources = new LinkedHashSet<>();
+    Set<MavenProject> visited = new HashSet<>();
+    for (MavenProject p : projectList) {
+      addSources(p, sources, visited);
+    }
+
+    return new LaunchPlan(key, moduleList, sources, buildClasspath(projectList, sources));
+  }
+
+  private File getLaunchPlanFile() {
+    String mainClass = getMainClass();
+    return new File(project.getBuild().getDirectory(), "gwt/" + mainClass.substring(mainClass.lastIndexOf('.') + 1) + ".launch");
+  }
+
+  /**
+   * Returns the key of the launch plan: a hash of the parameters the plan is resolved from, the active profiles, the
+   * user properties, and the files of the reactor projects the plan depends on.
+   * <p>
+   * Those files are the POMs of the reactor projects and of their parents, their module descriptors (or templates),
+   * and their resolved dependencies. They're recorded with their absolute path, size and last modification date, so
+   * touching, moving or replacing any of them resolves the plan again.
+   */
+  private String getLaunchPlanKey() {
+    List<String> inputs = new ArrayList<>();
+    inputs.add(getMainClass());
+    inputs.add("projects=" + projects);
+    inputs.add("modules=" + modules);
+    inputs.add("classpathScope=" + classpathScope);
+    inputs.add("prependSources=" + prependSourcesToClasspath());
+    for (String profile : session.getRequest().getActiveProfiles()) {
+      inputs.add("profile=" + profile);
+    }
+    for (String profile : session.getRequest().getInactiveProfiles()) {
+      inputs.add("!profile=" + profile);
+    }
+    for (String name : new TreeSet<>(session.getUserProperties().stringPropertyNames())) {
+      inputs.add("property=" + name + "=" + session.getUserProperties().getProperty(name));
+    }
+    Set<File> files = new LinkedHashSet<>();
+    for (MavenProject p : reactorProjects) {
+      for (MavenProject pom = p; pom != null; pom = pom.getParent()) {
+        if (pom.getFile() != null) {
+          files.add(pom.getFile().getAbsoluteFile());
+        }
+      }
+      files.add(getModuleDescriptor(p).getAbsoluteFile());
+      for (Artifact artifact : p.getArtifacts()) {
+        if (artifact.getFile() != null) {
+          files.add(artifact.getFile().getAbsoluteFile());
+        }
+      }
+    }
+    for (File file : files) {
+      // missing files are recorded too, so that creating them changes the key
+      inputs.add("file=" + file + "@" + file.length() + "@" + file.lastModified());
+    }
+    return BuildFingerprint.hash(inputs);
+  }
+
+  /**
+   * Returns the module template of the given project, as configured for the {@code generate-module} goal.
+   */
+  private File getModuleDescriptor(MavenProject p) {
+    Xpp3Dom configuration = p.getGoalConfiguration(pluginDescriptor.getGroupId(), pluginDescriptor.getArtifactId(),
+        null, null);
+    Xpp3Dom moduleTemplate = configuration == null ? null : configuration.getChild("moduleTemplate");
+    if (moduleTemplate != null && StringUtils.isNotBlank(moduleTemplate.getValue())) {
+      File file = new File(moduleTemplate.getValue());
+      return file.isAbsolute() ? file : new File(p.getBasedir(), moduleTemplate.getValue());
+    }
+    return new File(p.getBasedir(), "src/main/module.gwt.xml");
+  }
+
+  private @Nullable LaunchPlan readLaunchPlan(File launchPlanFile, String key) {
+    try {
+      return LaunchPlan.read(launchPlanFile, key);
+    } catch (IOException e) {
+      getLog().debug("Could not read " + launchPlanFile + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Builds the classpath of the forked JVM from the given projects and their dependencies.
+   */
+  LinkedHashSet<String> buildClasspath(List<MavenProject> projectList, Set<String> sources) {
     LinkedHashSet<String> cp = new LinkedHashSet<>();
     if (prependSourcesToClasspath()) {
       cp.addAll(sources);
@@ -260,17 +459,7 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
         cp.add(artifact.getFile().getPath());
       }
     }
-
-    try {
-      FileUtils.forceMkdir(new File(project.getBuild().getDirectory()));
-      FileUtils.forceMkdir(getWorkDir());
-      forceMkdirs();
-    } catch (IOException ioe) {
-      throw new MojoFailureException(ioe.getMessage(), ioe);
-    }
-
-    CommandLine commandLine = new CommandLine(getLog(), project, session, toolchainManager, jdkToolchain, jvm);
-    commandLine.execute(cp, args);
+    return cp;
   }
 
   protected abstract String getMainClass();
@@ -285,11 +474,17 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
 
   protected abstract void forceMkdirs() throws IOException;
 
-  private void addSources(MavenProject p, LinkedHashSet<String> sources) {
-    getLog().debug("Adding sources for " + p.getId());
+  /**
+   * Adds the source roots of the given project, and of the reactor projects it depends on, visiting each project once.
+   */
+  private void addSources(MavenProject p, LinkedHashSet<String> sources, Set<MavenProject> visited) {
     if (p.getExecutionProject() != null) {
       p = p.getExecutionProject();
     }
+    if (!visited.add(p)) {
+      return;
+    }
+    getLog().debug("Adding sources for " + p.getId());
     sources.addAll(p.getCompileSourceRoots());
     ScopeArtifactFilter artifactFilter = new ScopeArtifactFilter(classpathScope);
     @SuppressWarnings("deprecation") // For some reason, the getter was deprecated, with no real replacement
@@ -321,7 +516,7 @@ public abstract class AbstractDevModeMojo extends AbstractMojo {
         getLog().debug("Ignoring " + artifact.getId() + "; no corresponding project reference.");
         continue;
       }
-      addSources(reference, sources);
+      addSources(reference, sources, visited);
     }
   }
 
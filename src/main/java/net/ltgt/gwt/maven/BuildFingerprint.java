@@ -0,0 +1,246 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.MatchPatterns;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Content-based fingerprint of the inputs of a GWT compilation, persisted between builds.
+ * <p>
+ * The compiler flags are recorded as a single SHA-256 hash, such that changing any of them invalidates the output.
+ * Each input file is recorded with its size, last modification date and a SHA-256 hash of its content.
+ * The size and last modification date are only used to avoid re-hashing files that did not change since the
+ * previous fingerprint was computed; two fingerprints are compared on their hashes only, so that a fresh checkout
+ * (or a restored cache) does not invalidate the compilation output.
+ */
+class BuildFingerprint {
+  private static final String HEADER = "# GWT compilation fingerprint, version 2";
+  private static final String FLAGS = "flags";
+  private static final String FILE = "file";
+  private static final MatchPatterns DEFAULT_EXCLUDES = MatchPatterns.from(DirectoryScanner.DEFAULTEXCLUDES);
+
+  static class Entry {
+    final long size;
+    final long lastModified;
+    final String hash;
+
+    Entry(long size, long lastModified, String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+  }
+
+  private final String flags;
+  private final Map<String, Entry> files;
+
+  private BuildFingerprint(String flags, Map<String, Entry> files) {
+    this.flags = flags;
+    this.files = files;
+  }
+
+  String getFlags() {
+    return flags;
+  }
+
+  /**
+   * Returns whether both fingerprints have the same flags and the same files with the same content.
+   */
+  boolean matches(BuildFingerprint other) {
+    if (!flags.equals(other.flags)) {
+      return false;
+    }
+    if (!files.keySet().equals(other.files.keySet())) {
+      return false;
+    }
+    for (Map.Entry<String, Entry> entry : files.entrySet()) {
+      if (!entry.getValue().hash.equals(other.files.get(entry.getKey()).hash)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the fingerprint of the given inputs.
+   *
+   * @param basedir the directory paths are made relative to, so the fingerprint doesn't depend on the checkout location
+   * @param inputs files or directories (walked recursively, ignoring the {@link DirectoryScanner#DEFAULTEXCLUDES
+   *               default excludes}); missing files are ignored
+   * @param flags the hash of the compiler arguments, as returned by {@link #hashFlags}
+   * @param previous a previous fingerprint whose hashes will be reused for files whose size and last modification
+   *                 date did not change
+   */
+  static BuildFingerprint compute(File basedir, Iterable<File> inputs, String flags,
+      @Nullable BuildFingerprint previous) throws IOException {
+    final Path base = basedir.toPath().toAbsolutePath().normalize();
+    final Map<String, Entry> previousFiles = previous == null ? Collections.<String, Entry>emptyMap() : previous.files;
+    final Map<String, Entry> files = new TreeMap<>();
+    final byte[] buffer = new byte[64 * 1024];
+    for (File input : inputs) {
+      if (input == null || !input.exists()) {
+        continue;
+      }
+      final Path root = input.toPath().toAbsolutePath().normalize();
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          return !dir.equals(root) && isExcluded(root, dir)
+              ? FileVisitResult.SKIP_SUBTREE
+              : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (!attrs.isRegularFile() || (!file.equals(root) && isExcluded(root, file))) {
+            return FileVisitResult.CONTINUE;
+          }
+          String key = file.startsWith(base) ? base.relativize(file).toString() : file.toString();
+          key = key.replace(File.separatorChar, '/');
+          long size = attrs.size();
+          long lastModified = attrs.lastModifiedTime().toMillis();
+          Entry entry = previousFiles.get(key);
+          if (entry == null || entry.size != size || entry.lastModified != lastModified) {
+            entry = new Entry(size, lastModified, hash(file, buffer));
+          }
+          files.put(key, entry);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+    return new BuildFingerprint(flags, files);
+  }
+
+  private static boolean isExcluded(Path root, Path path) {
+    return DEFAULT_EXCLUDES.matches(root.relativize(path).toString(), true);
+  }
+
+  /**
+   * Hashes the compiler arguments.
+   * <p>
+   * Occurrences of {@code basedir} are made relative, so the hash doesn't depend on the checkout location.
+   */
+  static String hashFlags(File basedir, List<String> arguments) {
+    String base = basedir.toPath().toAbsolutePath().normalize().toString();
+    List<String> relativized = new ArrayList<>(arguments.size());
+    for (String argument : arguments) {
+      relativized.add(argument.replace(base, "${project.basedir}"));
+    }
+    return hash(relativized);
+  }
+
+  /**
+   * Hashes a list of strings, as-is.
+   */
+  static String hash(List<String> values) {
+    MessageDigest digest = newDigest();
+    for (String value : values) {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+      // separator, so that ["ab", "c"] and ["a", "bc"] hash differently
+      digest.update((byte) 0);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static String hash(Path file, byte[] buffer) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      return hash(in, buffer);
+    }
+  }
+
+  /**
+   * Hashes the content of a stream, the same way as the inputs of the compilation.
+   */
+  static String hash(InputStream in) throws IOException {
+    return hash(in, new byte[8192]);
+  }
+
+  private static String hash(InputStream in, byte[] buffer) throws IOException {
+    MessageDigest digest = newDigest();
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      digest.update(buffer, 0, read);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(64);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reads a fingerprint previously written by {@link #write(File)}.
+   *
+   * @return the fingerprint, or {@code null} if the file does not exist or cannot be parsed.
+   */
+  static @Nullable BuildFingerprint read(File file) throws IOException {
+    String flags = null;
+    Map<String, Entry> files = new TreeMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return null;
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 5);
+        if (FLAGS.equals(parts[0]) && parts.length == 2) {
+          flags = parts[1];
+        } else if (FILE.equals(parts[0]) && parts.length == 5) {
+          files.put(parts[4], new Entry(Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[1]));
+        } else {
+          return null;
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException | NumberFormatException e) {
+      return null;
+    }
+    if (flags == null) {
+      return null;
+    }
+    return new BuildFingerprint(flags, files);
+  }
+
+  void write(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      writer.write(FLAGS + '\t' + flags + '\n');
+      for (Map.Entry<String, Entry> entry : files.entrySet()) {
+        Entry e = entry.getValue();
+        writer.write(FILE + '\t' + e.hash + '\t' + e.size + '\t' + e.lastModified + '\t' + entry.getKey() + '\n');
+      }
+    }
+  }
+}
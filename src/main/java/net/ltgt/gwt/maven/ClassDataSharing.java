@@ -0,0 +1,251 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.plugin.logging.Log;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Maintains an application Class Data Sharing (AppCDS) archive of gwt-dev and its dependencies, used to speed up
+ * the startup of forked JVMs.
+ * <p>
+ * The archive is created in two steps: a first JVM records the classes it loads in a class list, and the archive is
+ * then dumped from that list before the next JVM is launched. Archives are identified by a hash of the Java
+ * executable, the classpath they're built from and the JVM options that affect them, so they're regenerated
+ * whenever one of those changes. Requires Java 11 or later.
+ * <p>
+ * Only one JVM at a time records the classes it loads, to a temporary file that's renamed to the class list once the
+ * JVM has exited; JVMs launched in the meantime (e.g. when distributing permutations) run without class data sharing.
+ * <p>
+ * For the archive to be usable, its classpath has to be a prefix of the forked JVM's classpath, so gwt-dev and its
+ * dependencies are moved to the front of the classpath.
+ */
+class ClassDataSharing {
+  private static final String ARCHIVE_EXTENSION = ".jsa";
+  private static final String CLASS_LIST_EXTENSION = ".classlist";
+  private static final String FAILED_EXTENSION = ".failed";
+  private static final String LOG_EXTENSION = ".log";
+
+  private final Log log;
+  private final File directory;
+  private final List<String> sharedClasspath;
+  private final List<String> jvmOptions;
+  private @Nullable File recordingClassList;
+
+  /**
+   * @param directory the directory where to store the archive, generally {@code ${project.build.directory}/gwt/cds}
+   * @param sharedClasspath the classpath entries to archive
+   * @param jvmArgs the JVM arguments of the forked JVM, those affecting the archive are also used to create it
+   */
+  ClassDataSharing(Log log, File directory, List<String> sharedClasspath, List<String> jvmArgs) {
+    this.log = log;
+    this.directory = directory;
+    this.sharedClasspath = sharedClasspath;
+    this.jvmOptions = new ArrayList<>();
+    for (String arg : jvmArgs) {
+      // Heap sizing and -XX flags (GC, compressed oops) must match between dump and runtime.
+      if (arg.startsWith("-XX:") || arg.startsWith("-Xmx") || arg.startsWith("-Xms")) {
+        jvmOptions.add(arg);
+      }
+    }
+  }
+
+  /**
+   * Returns gwt-dev and its dependencies among the given artifacts, or an empty list if gwt-dev is not found.
+   */
+  static List<String> getGwtDevClasspath(Iterable<Artifact> artifacts, ArtifactFilter artifactFilter) {
+    Artifact gwtDev = null;
+    for (Artifact artifact : artifacts) {
+      if ("gwt-dev".equals(artifact.getArtifactId())
+          && ("org.gwtproject".equals(artifact.getGroupId()) || "com.google.gwt".equals(artifact.getGroupId()))) {
+        gwtDev = artifact;
+        break;
+      }
+    }
+    if (gwtDev == null || gwtDev.getFile() == null) {
+      return Collections.emptyList();
+    }
+    List<String> classpath = new ArrayList<>();
+    classpath.add(gwtDev.getFile().getPath());
+    for (Artifact artifact : artifacts) {
+      if (artifact != gwtDev && artifact.getFile() != null && artifact.getFile().isFile()
+          && artifactFilter.include(artifact)
+          && artifact.getDependencyTrail() != null && artifact.getDependencyTrail().contains(gwtDev.getId())) {
+        classpath.add(artifact.getFile().getPath());
+      }
+    }
+    return classpath;
+  }
+
+  /**
+   * Returns the given classpath with the archived entries first.
+   */
+  List<String> reorderClasspath(Iterable<String> classpath) {
+    Set<String> result = new LinkedHashSet<>(sharedClasspath);
+    for (String entry : classpath) {
+      result.add(entry);
+    }
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * Returns the JVM options to use the archive, creating it first if classes have been recorded by a previous run;
+   * or the JVM options to record the loaded classes when there's no archive yet, unless another JVM is already
+   * recording them. The options must be passed to {@link #finish} once the JVM has exited.
+   */
+  synchronized List<String> prepare(String executable) {
+    if (sharedClasspath.isEmpty()) {
+      log.debug("gwt-dev not found, not using class data sharing");
+      return Collections.emptyList();
+    }
+    String key = computeKey(executable);
+    File archive = new File(directory, key + ARCHIVE_EXTENSION);
+    File classList = new File(directory, key + CLASS_LIST_EXTENSION);
+    File failed = new File(directory, key + FAILED_EXTENSION);
+    if (failed.exists()) {
+      log.debug("Creation of class data sharing archive previously failed, see " + new File(directory, key + LOG_EXTENSION));
+      return Collections.emptyList();
+    }
+    if (!archive.isFile() && classList.isFile()) {
+      dump(executable, key, classList, archive);
+    }
+    if (archive.isFile()) {
+      log.debug("Using class data sharing archive " + archive);
+      return Collections.singletonList("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+    }
+    if (failed.exists()) {
+      return Collections.emptyList();
+    }
+    if (recordingClassList != null) {
+      log.debug("Loaded classes are being recorded by another JVM, not using class data sharing");
+      return Collections.emptyList();
+    }
+    // First run: delete archives for other keys and record loaded classes.
+    directory.mkdirs();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (!file.getName().startsWith(key)) {
+          file.delete();
+        }
+      }
+    }
+    log.debug("Recording loaded classes to create a class data sharing archive: " + classList);
+    recordingClassList = classList;
+    return Collections.singletonList(getRecordingOption(classList));
+  }
+
+  /**
+   * Moves the recorded class list in place if the JVM launched with the given options recorded it and succeeded, so
+   * the next JVM creates the archive; or deletes it so the next JVM records the loaded classes again.
+   *
+   * @param options the options returned by {@link #prepare}
+   */
+  synchronized void finish(List<String> options, boolean succeeded) {
+    File classList = recordingClassList;
+    if (classList == null || !options.contains(getRecordingOption(classList))) {
+      return;
+    }
+    recordingClassList = null;
+    File tmp = getTemporaryClassList(classList);
+    try {
+      if (succeeded && tmp.isFile()) {
+        Files.move(tmp.toPath(), classList.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return;
+      }
+    } catch (IOException e) {
+      log.debug(e);
+    }
+    tmp.delete();
+  }
+
+  private static String getRecordingOption(File classList) {
+    return "-XX:DumpLoadedClassList=" + getTemporaryClassList(classList).getAbsolutePath();
+  }
+
+  private static File getTemporaryClassList(File classList) {
+    return new File(classList.getPath() + ".tmp");
+  }
+
+  private void dump(String executable, String key, File classList, File archive) {
+    File tmp = new File(directory, key + ".tmp" + ARCHIVE_EXTENSION);
+    File logFile = new File(directory, key + LOG_EXTENSION);
+    List<String> command = new ArrayList<>();
+    command.add(executable);
+    command.addAll(jvmOptions);
+    command.add("-Xshare:dump");
+    command.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+    command.add("-XX:SharedArchiveFile=" + tmp.getAbsolutePath());
+    command.add("-cp");
+    command.add(String.join(File.pathSeparator, sharedClasspath));
+    log.info("Creating class data sharing archive " + archive);
+    if (log.isDebugEnabled()) {
+      log.debug("Command: " + String.join(" ", command));
+    }
+    int result;
+    try {
+      Process process = new ProcessBuilder(command)
+          .directory(directory)
+          .redirectErrorStream(true)
+          .redirectOutput(logFile)
+          .start();
+      process.getOutputStream().close();
+      result = process.waitFor();
+      if (result == 0 && tmp.isFile()) {
+        Files.move(tmp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return;
+      }
+    } catch (IOException e) {
+      log.debug(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    log.warn("Could not create class data sharing archive, see " + logFile);
+    try {
+      Files.write(new File(directory, key + FAILED_EXTENSION).toPath(), new byte[0]);
+    } catch (IOException e) {
+      log.debug(e);
+    }
+    tmp.delete();
+  }
+
+  private String computeKey(String executable) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+    List<String> parts = new ArrayList<>();
+    parts.add(executable + '@' + new File(executable).lastModified());
+    for (String entry : sharedClasspath) {
+      File file = new File(entry);
+      parts.add(file.getAbsolutePath() + '@' + file.length() + '@' + file.lastModified());
+    }
+    parts.addAll(jvmOptions);
+    for (String part : parts) {
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    StringBuilder sb = new StringBuilder();
+    byte[] bytes = digest.digest();
+    for (int i = 0; i < 16; i++) {
+      sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,70 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the classpath of forked JVMs to a JDK argument file, rather than passing it in the {@code CLASSPATH}
+ * environment variable. Requires Java 9 or later.
+ * <p>
+ * Files are named after a hash of the classpath, so they're written once and reused by all the JVMs with the same
+ * classpath, across builds.
+ */
+class ClasspathFile {
+  private final File directory;
+
+  /**
+   * @param directory the directory where to write the files, generally {@code ${project.build.directory}/gwt/classpath}
+   */
+  ClasspathFile(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the JVM argument passing the given classpath, writing the file if it doesn't exist yet.
+   * <p>
+   * Entries are made absolute, such that the file can be used from any working directory.
+   */
+  synchronized String prepare(List<String> entries) throws IOException {
+    List<String> classpath = new ArrayList<>(entries.size());
+    for (String entry : entries) {
+      classpath.add(new File(entry).getAbsolutePath());
+    }
+    String hash = BuildFingerprint.hash(classpath);
+    File file = new File(directory, hash + ".args");
+    if (!file.isFile()) {
+      directory.mkdirs();
+      File tmpFile = new File(directory, hash + ".tmp");
+      try {
+        write(tmpFile, classpath);
+        try {
+          Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        tmpFile.delete();
+      }
+    }
+    return "@" + file.getAbsolutePath();
+  }
+
+  private static void write(File file, List<String> classpath) throws IOException {
+    String cp = String.join(File.pathSeparator, classpath);
+    // The launcher reads argument files in the platform encoding.
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), Charset.defaultCharset())) {
+      writer.write("-cp\n\"");
+      // Backslashes are escape characters in quoted arguments.
+      writer.write(cp.replace("\\", "\\\\").replace("\"", "\\\""));
+      writer.write("\"\n");
+    }
+  }
+}
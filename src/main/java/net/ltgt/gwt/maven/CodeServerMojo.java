@@ -2,17 +2,27 @@ package net.ltgt.gwt.maven;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Execute;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.util.FileUtils;
+import org.jspecify.annotations.Nullable;
 
 /**
  * Runs GWT's CodeServer (SuperDevMode).
@@ -39,6 +49,49 @@ public class CodeServerMojo extends AbstractDevModeMojo {
   @Parameter
   private List<String> codeserverArgs;
 
+  /**
+   * Watch the source roots passed to the CodeServer, and ask it to recompile the modules as soon as files are saved,
+   * rather than when the browser asks for it.
+   * <p>
+   * The recompile triggered by the browser then finds the modules already compiled. The CodeServer is reached at the
+   * {@code -port} and {@code -bindAddress} from the {@link #codeserverArgs}, and the modules are compiled for the
+   * {@link #watchBindingProperties}, which must be set.
+   */
+  @Parameter(property = "gwt.watchSources", defaultValue = "false")
+  private boolean watchSources;
+
+  /**
+   * Watch the sources and resources of the selected reactor projects, and of the reactor projects contributing
+   * sources to the CodeServer, and run the {@code process-classes} phase on the projects that changed, in a new Maven
+   * process, such that annotation processors are run again and classes and resources are updated without restarting
+   * the CodeServer.
+   * <p>
+   * Projects are built with the projects of the current build they depend on, so those are resolved from the reactor.
+   * Only stale sources are compiled ({@code -Dmaven.compiler.useIncrementalCompilation=false}), so the classes of
+   * renamed or deleted sources are kept until the projects are cleaned. The modules are then recompiled if
+   * {@link #watchSources watching sources}.
+   */
+  @Parameter(property = "gwt.watchProjects", defaultValue = "false")
+  private boolean watchProjects;
+
+  /**
+   * The time, in milliseconds, without changes after which the modules are recompiled, or the projects built, when
+   * {@link #watchSources watching sources} or {@link #watchProjects projects}.
+   */
+  @Parameter(property = "gwt.watchDelay", defaultValue = "300")
+  private int watchDelay;
+
+  /**
+   * The binding properties to recompile the modules for when {@link #watchSources watching sources}; they should be
+   * the ones of the browser used for development, as sent by the "Dev Mode On" bookmarklet, e.g.
+   * {@code <user.agent>safari</user.agent>}.
+   * <p>
+   * Sources aren't watched if not set: compiling the modules for other binding properties than the browser's would
+   * only make the CodeServer compile them twice.
+   */
+  @Parameter
+  private Map<String, String> watchBindingProperties;
+
   @Override
   protected String getMainClass() {
     return "com.google.gwt.dev.codeserver.CodeServer";
@@ -67,6 +120,122 @@ public class CodeServerMojo extends AbstractDevModeMojo {
     return args;
   }
 
+  @Override
+  void launch(CommandLine commandLine, LinkedHashSet<String> classpath, List<String> args,
+      List<MavenProject> projectList, Set<String> sources) throws MojoExecutionException {
+    List<SourceWatcher> watchers = new ArrayList<>();
+    try {
+      CodeServerRecompiler recompiler = null;
+      if (watchSources) {
+        if (watchBindingProperties == null || watchBindingProperties.isEmpty()) {
+          getLog().warn("Cannot watch sources without watchBindingProperties; set them to the binding properties "
+              + "of the browser used for development");
+        } else {
+          String codeServerUrl = getCodeServerUrl();
+          if (codeServerUrl != null) {
+            recompiler = new CodeServerRecompiler(getLog(), codeServerUrl, watchBindingProperties);
+          }
+        }
+      }
+      Map<Path, MavenProject> projectRoots =
+          watchProjects ? getProjectRoots(projectList, sources) : Collections.<Path, MavenProject>emptyMap();
+      if (recompiler != null) {
+        // Sources of watched projects are recompiled once the projects have been built.
+        List<Path> roots = new ArrayList<>();
+        for (String source : sources) {
+          Path root = Paths.get(source).toAbsolutePath();
+          if (!projectRoots.containsKey(root)) {
+            roots.add(root);
+          }
+        }
+        CodeServerRecompiler r = recompiler;
+        watchers.add(new SourceWatcher(getLog(), "CodeServer sources", roots, watchDelay, changed -> r.recompile()));
+      }
+      if (watchProjects) {
+        ReactorRebuilder rebuilder = new ReactorRebuilder(getLog(), session, "process-classes");
+        CodeServerRecompiler r = recompiler;
+        watchers.add(new SourceWatcher(getLog(), "reactor projects", projectRoots.keySet(), watchDelay, changed -> {
+          Set<MavenProject> changedProjects = new LinkedHashSet<>();
+          for (Path root : changed) {
+            changedProjects.add(projectRoots.get(root));
+          }
+          if (rebuilder.rebuild(changedProjects) && r != null) {
+            r.recompile();
+          }
+        }));
+      }
+      for (SourceWatcher watcher : watchers) {
+        watcher.start();
+      }
+      super.launch(commandLine, classpath, args, projectList, sources);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot watch sources: " + e.getMessage(), e);
+    } finally {
+      for (SourceWatcher watcher : watchers) {
+        try {
+          watcher.close();
+        } catch (IOException e) {
+          getLog().debug("Cannot close the watcher", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the source and resource directories of the given projects, and of the reactor projects contributing
+   * sources, excluding generated sources.
+   */
+  private Map<Path, MavenProject> getProjectRoots(List<MavenProject> projectList, Set<String> sources) {
+    Map<Path, MavenProject> roots = new LinkedHashMap<>();
+    for (MavenProject p : reactorProjects) {
+      MavenProject executionProject = p.getExecutionProject() != null ? p.getExecutionProject() : p;
+      List<String> sourceRoots = executionProject.getCompileSourceRoots();
+      if (!projectList.contains(p) && Collections.disjoint(sourceRoots, sources)) {
+        continue;
+      }
+      List<String> directories = new ArrayList<>(sourceRoots);
+      for (Resource resource : executionProject.getResources()) {
+        directories.add(resource.getDirectory());
+      }
+      Path buildDirectory = Paths.get(p.getBuild().getDirectory()).toAbsolutePath();
+      for (String directory : directories) {
+        Path path = Paths.get(directory).toAbsolutePath();
+        if (!path.startsWith(buildDirectory)) {
+          roots.put(path, p);
+        }
+      }
+    }
+    return roots;
+  }
+
+  /**
+   * Returns the URL of the CodeServer from the {@code -port} and {@code -bindAddress} arguments, or {@code null} if
+   * the port is chosen automatically.
+   */
+  private @Nullable String getCodeServerUrl() {
+    String port = "9876";
+    String bindAddress = "127.0.0.1";
+    if (codeserverArgs != null) {
+      for (int i = 0; i + 1 < codeserverArgs.size(); i++) {
+        if ("-port".equals(codeserverArgs.get(i))) {
+          port = codeserverArgs.get(i + 1);
+        } else if ("-bindAddress".equals(codeserverArgs.get(i))) {
+          bindAddress = codeserverArgs.get(i + 1);
+        }
+      }
+    }
+    if ("auto".equals(port)) {
+      getLog().warn("Cannot watch sources when the CodeServer port is chosen automatically; use -port in codeserverArgs");
+      return null;
+    }
+    if ("0.0.0.0".equals(bindAddress) || "::".equals(bindAddress)) {
+      bindAddress = "127.0.0.1";
+    } else if (bindAddress.contains(":")) {
+      bindAddress = "[" + bindAddress + "]";
+    }
+    return "http://" + bindAddress + ":" + port + "/";
+  }
+
   @Override
   protected void forceMkdirs() throws IOException {
     if (launcherDir != null) {
@@ -0,0 +1,114 @@
+package net.ltgt.gwt.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Asks a running CodeServer to recompile its modules, as the browser does when it's refreshed.
+ * <p>
+ * The CodeServer compiles its modules for the binding properties it's given; the recompile triggered by the browser
+ * only finds them already compiled if they're the same.
+ */
+class CodeServerRecompiler {
+  private static final Pattern MODULE_NAMES = Pattern.compile("\"moduleNames\"\\s*:\\s*\\[([^\\]]*)\\]");
+  private static final Pattern STRING = Pattern.compile("\"([^\"]*)\"");
+  private static final Pattern STATUS_OK = Pattern.compile("\"status\"\\s*:\\s*\"ok\"");
+
+  private final Log log;
+  private final String codeServerUrl;
+  private final String query;
+
+  /**
+   * @param codeServerUrl the base URL of the CodeServer, ending with a slash
+   * @param bindingProperties the binding properties to compile the modules for
+   */
+  CodeServerRecompiler(Log log, String codeServerUrl, Map<String, String> bindingProperties)
+      throws UnsupportedEncodingException {
+    this.log = log;
+    this.codeServerUrl = codeServerUrl;
+    this.query = toQuery(bindingProperties);
+  }
+
+  /**
+   * Recompiles all the modules, logging the outcome; does nothing if the CodeServer cannot be reached.
+   */
+  synchronized void recompile() {
+    List<String> moduleNames;
+    try {
+      moduleNames = getModuleNames();
+    } catch (IOException e) {
+      // The CodeServer isn't listening yet, or is shutting down.
+      log.debug("Cannot reach the CodeServer at " + codeServerUrl + ": " + e.getMessage());
+      return;
+    }
+    for (String moduleName : moduleNames) {
+      long start = System.currentTimeMillis();
+      String response;
+      try {
+        response = get("recompile/" + moduleName + query);
+      } catch (IOException e) {
+        log.debug("Cannot reach the CodeServer at " + codeServerUrl + ": " + e.getMessage());
+        return;
+      }
+      if (STATUS_OK.matcher(response).find()) {
+        log.info("Recompiled " + moduleName + " in " + (System.currentTimeMillis() - start) + " ms");
+      } else {
+        log.warn("Recompiling " + moduleName + " failed, see the CodeServer output above");
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the modules served by the CodeServer, after they've been renamed.
+   */
+  private List<String> getModuleNames() throws IOException {
+    List<String> moduleNames = new ArrayList<>();
+    Matcher matcher = MODULE_NAMES.matcher(get("dev_mode_on.js"));
+    if (matcher.find()) {
+      Matcher names = STRING.matcher(matcher.group(1));
+      while (names.find()) {
+        moduleNames.add(names.group(1));
+      }
+    }
+    return moduleNames;
+  }
+
+  private String get(String path) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(codeServerUrl + path).openConnection();
+    connection.setConnectTimeout(1000);
+    try (InputStream in = connection.getInputStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static String toQuery(Map<String, String> bindingProperties) throws UnsupportedEncodingException {
+    StringBuilder query = new StringBuilder();
+    for (Map.Entry<String, String> property : bindingProperties.entrySet()) {
+      query.append(query.length() == 0 ? '?' : '&')
+          .append(URLEncoder.encode(property.getKey(), "UTF-8"))
+          .append('=')
+          .append(URLEncoder.encode(property.getValue(), "UTF-8"));
+    }
+    return query.toString();
+  }
+}
@@ -2,12 +2,16 @@ package net.ltgt.gwt.maven;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteException;
 import org.apache.commons.exec.Executor;
 import org.apache.commons.exec.LogOutputStream;
 import org.apache.commons.exec.PumpStreamHandler;
@@ -28,6 +32,12 @@ class CommandLine {
   private final ToolchainManager toolchainManager;
   private final Map<String, String> toolchainRequirements;
   private final String jvm;
+  private @Nullable ClassDataSharing classDataSharing;
+  private @Nullable File reportsDirectory;
+  private @Nullable File aggregateReport;
+  private @Nullable ClasspathFile classpathFile;
+  private @Nullable File logDirectory;
+  private int logRateLimit;
 
   CommandLine(Log log, MavenProject project, MavenSession session, ToolchainManager toolchainManager, Map<String, String> toolchainRequirements, String jvm) {
     this.log = log;
@@ -38,14 +48,94 @@ class CommandLine {
     this.jvm = jvm;
   }
 
+  /**
+   * Sets the class data sharing archive to use, or create, for the forked JVM.
+   */
+  void setClassDataSharing(@Nullable ClassDataSharing classDataSharing) {
+    this.classDataSharing = classDataSharing;
+  }
+
+  /**
+   * Sets the directory where to write a {@link ForkReport report} for each forked JVM, and optionally a file where
+   * to append them.
+   */
+  void setReports(@Nullable File reportsDirectory, @Nullable File aggregateReport) {
+    this.reportsDirectory = reportsDirectory;
+    this.aggregateReport = aggregateReport;
+  }
+
+  /**
+   * Sets the argument file where to write the classpath of the forked JVM, rather than passing it in the
+   * {@code CLASSPATH} environment variable.
+   */
+  void setClasspathFile(@Nullable ClasspathFile classpathFile) {
+    this.classpathFile = classpathFile;
+  }
+
+  /**
+   * Sets the directory where to write the output of each forked JVM, rather than logging it, and the maximum number
+   * of lines to log per second otherwise.
+   *
+   * @see ForkLog
+   */
+  void setLogging(@Nullable File logDirectory, int logRateLimit) {
+    this.logDirectory = logDirectory;
+    this.logRateLimit = logRateLimit;
+  }
 
   void execute(Iterable<String> classpath, List<String> arguments) throws MojoExecutionException {
+    final String executable = getExecutable();
+    final File logFile = logDirectory == null ? null : new File(logDirectory, getLogName(arguments) + ".log");
+    final ForkReport report = reportsDirectory == null ? null : newReport(arguments);
+    if (report != null) {
+      List<String> cp = new ArrayList<>();
+      for (String entry : classpath) {
+        cp.add(entry);
+      }
+      cp.add(getPluginJar().getPath());
+      classpath = cp;
+      int mainClass = ForkReport.indexOfMainClass(arguments);
+      List<String> args = new ArrayList<>(arguments.subList(0, mainClass));
+      args.add(ForkMetrics.class.getName());
+      args.add(report.getMetricsFile().getAbsolutePath());
+      args.addAll(arguments.subList(mainClass, arguments.size()));
+      arguments = args;
+    }
+    List<String> classDataSharingOptions = Collections.emptyList();
+    if (classDataSharing != null) {
+      classpath = classDataSharing.reorderClasspath(classpath);
+      classDataSharingOptions = classDataSharing.prepare(executable);
+      List<String> args = new ArrayList<>(classDataSharingOptions);
+      args.addAll(arguments);
+      arguments = args;
+    }
     final String cp = StringUtils.join(classpath.iterator(), File.pathSeparator);
+    if (classpathFile != null) {
+      List<String> entries = new ArrayList<>();
+      for (String entry : classpath) {
+        entries.add(entry);
+      }
+      List<String> args = new ArrayList<>();
+      try {
+        args.add(classpathFile.prepare(entries));
+      } catch (IOException e) {
+        throw new MojoExecutionException("Cannot write the classpath file: " + e.getMessage(), e);
+      }
+      args.addAll(arguments);
+      arguments = args;
+    }
     final String[] args = arguments.toArray(new String[arguments.size()]);
 
-    org.apache.commons.exec.CommandLine commandline = new org.apache.commons.exec.CommandLine(getExecutable());
+    org.apache.commons.exec.CommandLine commandline = new org.apache.commons.exec.CommandLine(executable);
     commandline.addArguments(args);
 
+    final ForkLog forkLog;
+    try {
+      forkLog = new ForkLog(log, logFile, logRateLimit);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot write " + logFile + ": " + e.getMessage(), e);
+    }
+
     Executor executor = DefaultExecutor.builder().get();
     executor.setWorkingDirectory(new File(project.getBuild().getDirectory()));
     executor.setStreamHandler(
@@ -53,37 +143,87 @@ class CommandLine {
             new LogOutputStream() {
               @Override
               protected void processLine(String line, int logLevel) {
-                log.info(line);
+                if (report != null) {
+                  report.processLine(line);
+                }
+                forkLog.info(line);
               }
             },
             new LogOutputStream() {
               @Override
               protected void processLine(String line, int logLevel) {
-                log.warn(line);
+                forkLog.warn(line);
               }
             }));
     executor.setProcessDestroyer(new ShutdownHookProcessDestroyer());
 
-    Map<String, String> env = new LinkedHashMap<>(System.getenv());
-    env.put("CLASSPATH", cp);
+    Map<String, String> env = null;
+    if (classpathFile == null) {
+      env = new LinkedHashMap<>(System.getenv());
+      env.put("CLASSPATH", cp);
+    }
 
     if (log.isDebugEnabled()) {
       log.debug("Classpath: " + cp);
       log.debug("Arguments: " + String.join(" ", commandline.getArguments()));
     }
 
-    int result;
+    int result = -1;
     try {
-      result = executor.execute(commandline, env);
+      try {
+        result = executor.execute(commandline, env);
+      } finally {
+        forkLog.close();
+        if (classDataSharing != null) {
+          classDataSharing.finish(classDataSharingOptions, result == 0);
+        }
+      }
+    } catch (ExecuteException e) {
+      if (report != null) {
+        report.write(log, e.getExitValue(), aggregateReport, session.getStartTime());
+      }
+      throw new MojoExecutionException(e.getMessage(), e);
     } catch (IOException e) {
       throw new MojoExecutionException(e.getMessage(), e);
     }
+    if (report != null) {
+      report.write(log, result, aggregateReport, session.getStartTime());
+    }
     if (result != 0) {
       throw new MojoExecutionException("GWT exited with status " + result);
     }
   }
 
-  private String getExecutable() {
+  private static String getLogName(List<String> arguments) {
+    int mainClass = ForkReport.indexOfMainClass(arguments);
+    if (mainClass < 0) {
+      return "java";
+    }
+    return ForkReport.getName(arguments.get(mainClass), arguments.subList(mainClass + 1, arguments.size()));
+  }
+
+  private ForkReport newReport(List<String> arguments) throws MojoExecutionException {
+    int mainClass = ForkReport.indexOfMainClass(arguments);
+    if (mainClass < 0) {
+      throw new MojoExecutionException("Cannot find main class in arguments: " + arguments);
+    }
+    reportsDirectory.mkdirs();
+    return new ForkReport(project.getId(), arguments.get(mainClass), arguments.subList(mainClass + 1, arguments.size()),
+        reportsDirectory);
+  }
+
+  /**
+   * Returns the plugin JAR, to add classes from the plugin to the classpath of forked JVMs.
+   */
+  static File getPluginJar() throws MojoExecutionException {
+    try {
+      return Paths.get(CommandLine.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toFile();
+    } catch (URISyntaxException | RuntimeException e) {
+      throw new MojoExecutionException("Cannot locate the plugin JAR", e);
+    }
+  }
+
+  String getExecutable() {
     if (StringUtils.isNotBlank(jvm)) {
       return jvm;
     }
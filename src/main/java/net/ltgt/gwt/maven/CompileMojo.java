@@ -1,8 +1,10 @@
 package net.ltgt.gwt.maven;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -22,9 +24,6 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.toolchain.ToolchainManager;
-import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
-import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
-import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
 import org.codehaus.plexus.util.StringUtils;
 import org.jspecify.annotations.Nullable;
 
@@ -56,6 +55,10 @@ public class CompileMojo extends AbstractMojo implements GwtOptions {
    * The number of local workers to use when compiling permutations. When terminated
    * with "C", the number part is multiplied with the number of CPU cores. Floating
    * point values are only accepted together with "C".
+   * <p>
+   * When {@code auto}, the number of workers is computed from the CPU cores and the memory
+   * available (taking container limits into account) shared by the GWT compilations running
+   * concurrently in the build, and the maximum heap size ({@code -Xmx} in {@link #jvmArgs}).
    */
   @Parameter(property = "gwt.localWorkers")
   private String localWorkers;
@@ -142,8 +145,10 @@ public class CompileMojo extends AbstractMojo implements GwtOptions {
   /**
    * Require the GWT plugin to compile the GWT module even if none of the
    * sources appear to have changed. By default, this plugin looks to see if
-   * the output *.nocache.js exists and inputs (POM, sources and dependencies)
-   * have not changed.
+   * the output *.nocache.js exists, the compiler flags are the same as for the
+   * previous compilation, and inputs (POM, sources and dependencies) have not
+   * changed, comparing their content with the one recorded during the previous
+   * compilation whenever their timestamps are newer than the output.
    */
   @Parameter(property = "gwt.forceCompilation", defaultValue="false")
   private boolean forceCompilation;
@@ -171,6 +176,127 @@ public class CompileMojo extends AbstractMojo implements GwtOptions {
   @Parameter
   private Map<String, String> jdkToolchain;
 
+  /**
+   * Use a class data sharing archive of gwt-dev and its dependencies to speed up the startup of the forked JVM.
+   * <p>
+   * The archive is created under {@code ${project.build.directory}/gwt/cds} from the classes loaded by a first run,
+   * and regenerated whenever the Java executable, the gwt-dev classpath or the JVM options change.
+   * gwt-dev and its dependencies are moved to the front of the classpath. Requires Java 11 or later.
+   */
+  @Parameter(property = "gwt.classDataSharing", defaultValue = "false")
+  private boolean classDataSharing;
+
+  /**
+   * Pass the classpath to the forked JVM in a JDK argument file, rather than in the {@code CLASSPATH} environment
+   * variable. Requires Java 9 or later.
+   * <p>
+   * Large classpaths make for huge environments, which slow down launching the JVM, or even make it fail on some
+   * systems. The files are written to {@code ${project.build.directory}/gwt/classpath}, and reused as long as the
+   * classpath doesn't change.
+   */
+  @Parameter(property = "gwt.classpathFile", defaultValue = "false")
+  private boolean classpathFile;
+
+  /**
+   * Write the output of each forked JVM to a file in {@code ${project.build.directory}/gwt/logs}, rather than to the
+   * Maven log. Only errors and warnings are logged, followed by the path of the file.
+   */
+  @Parameter(property = "gwt.logToFile", defaultValue = "false")
+  private boolean logToFile;
+
+  /**
+   * The maximum number of lines of output of the forked JVM to log per second, or {@code 0} for no limit. Other lines
+   * are dropped, except errors and warnings, and counted once the JVM exits. Ignored when {@link #logToFile logging
+   * to files}.
+   */
+  @Parameter(property = "gwt.logRateLimit", defaultValue = "0")
+  private int logRateLimit;
+
+  /**
+   * How to run the GWT compiler: {@code fork} to fork a new JVM for each compilation, {@code daemon} to reuse
+   * a long-lived JVM across modules and consecutive builds, or {@code in-process} to run it inside the Maven JVM.
+   * <p>
+   * A daemon is started on first use; it is shared by all compilations using the same Java executable,
+   * {@link #jvmArgs}, {@link #systemProperties}, and version of gwt-dev.
+   * Compilations are run one at a time in a given daemon, and relative paths in {@link #compilerArgs} aren't
+   * supported as they're resolved against the daemon's working directory. Linkers must come from dependencies,
+   * not from the project itself.
+   * <p>
+   * The {@code in-process} mode is best suited to small modules, where forking a JVM costs more than the compilation
+   * itself. GWT is loaded in an isolated class realm, and system properties are restored after the compilation;
+   * {@link #jvmArgs}, {@link #jvm} and {@link #jdkToolchain} are ignored, and compilations are run one at a time.
+   * Linkers must come from dependencies, as with the {@code daemon} mode. As the compiler changes system properties,
+   * this mode isn't used in parallel builds, where a JVM is forked instead.
+   */
+  @Parameter(property = "gwt.executionMode", defaultValue = "fork")
+  private String executionMode;
+
+  /**
+   * Split the compilation into its precompile, compile-permutations and link steps, each permutation being compiled
+   * in its own forked JVM. Permutations of all modules in the build share a pool of workers, bounded by the number of
+   * CPU cores and the available memory given the maximum heap size of each JVM ({@code -Xmx} in {@link #jvmArgs}),
+   * such that parallel builds ({@code mvn -T}) keep all cores busy without overcommitting memory.
+   * <p>
+   * Only applies when {@link #executionMode} is {@code fork}; {@link #localWorkers} is then ignored. Each worker
+   * repeats part of the precompilation, so this trades CPU time for wall-clock time.
+   */
+  @Parameter(property = "gwt.distributePermutations", defaultValue = "false")
+  private boolean distributePermutations;
+
+  /**
+   * Write a JSON report for each forked JVM to {@code ${project.build.directory}/gwt/reports}, with its wall-clock time,
+   * CPU time, GC time, peak heap and resident memory, and the timings of the compilation phases.
+   * <p>
+   * Only applies when {@link #executionMode} is {@code fork}.
+   */
+  @Parameter(property = "gwt.writeReports", defaultValue = "false")
+  private boolean writeReports;
+
+  /**
+   * Also append the reports, one per line, to {@code gwt/reports.jsonl} in the build directory of the top-level project,
+   * to collect the reports of all modules of the build. The file is overwritten by each build.
+   * <p>
+   * Only applies when {@link #writeReports} is {@code true}.
+   */
+  @Parameter(property = "gwt.aggregateReports", defaultValue = "false")
+  private boolean aggregateReports;
+
+  /**
+   * The time (in seconds) after which an unused compiler daemon stops, when {@link #executionMode} is {@code daemon}.
+   */
+  @Parameter(property = "gwt.daemonIdleTimeout", defaultValue = "10800")
+  private int daemonIdleTimeout;
+
+  /**
+   * Write gzip-compressed siblings ({@code .gz}) of the compressible files output by the compiler in the module
+   * directory, for web servers to serve them as-is rather than compressing them on the fly. They're then included
+   * in the WAR by {@code package-app}.
+   * <p>
+   * Files are compressed in parallel, and only when their content changed since the previous build. Siblings that
+   * wouldn't be smaller than the file aren't written.
+   */
+  @Parameter(property = "gwt.precompress", defaultValue = "false")
+  private boolean precompress;
+
+  /**
+   * Patterns of the files to precompress, relative to the module directory.
+   */
+  @Parameter(defaultValue = "**/*.js,**/*.html,**/*.css,**/*.svg,**/*.json,**/*.txt,**/*.xml")
+  private String[] precompressIncludes;
+
+  /**
+   * Also write brotli-compressed siblings ({@code .br}) when {@link #precompress} is {@code true}, using the
+   * {@link #brotliExecutable brotli command-line tool}.
+   */
+  @Parameter(property = "gwt.precompressBrotli", defaultValue = "false")
+  private boolean precompressBrotli;
+
+  /**
+   * Path to the brotli command-line tool.
+   */
+  @Parameter(property = "gwt.brotliExecutable", defaultValue = "brotli")
+  private String brotliExecutable;
+
   @Parameter(defaultValue = "${project}", required = true, readonly = true)
   private MavenProject project;
 
@@ -186,32 +312,51 @@ public class CompileMojo extends AbstractMojo implements GwtOptions {
       return;
     }
 
-    List<String> sourceRoots = SourcesAsResourcesHelper.filterSourceRoots(
-        getLog(), project.getResources(), project.getCompileSourceRoots());
+    MachineResources.compilationStarted();
+    try {
+      compile();
+    } finally {
+      MachineResources.compilationFinished();
+    }
 
-    if (!forceCompilation && !isStale(sourceRoots)) {
-      getLog().info("Compilation output seems uptodate. GWT compilation skipped.");
-      return;
+    if (precompress) {
+      new Precompressor(getLog(), precompressBrotli ? brotliExecutable : null).precompress(
+          new File(webappDirectory, getModuleShortName()), precompressIncludes,
+          new File(workDir, moduleName + ".precompressed"));
     }
+  }
 
-    List<String> args = new ArrayList<>();
+  private void compile() throws MojoExecutionException {
+    List<String> sourceRoots = SourcesAsResourcesHelper.filterSourceRoots(
+        getLog(), project.getResources(), project.getCompileSourceRoots());
+
+    List<String> jvmOptions = new ArrayList<>();
     if (jvmArgs != null) {
-      args.addAll(jvmArgs);
+      jvmOptions.addAll(jvmArgs);
     }
     if (systemProperties != null) {
       for (Map.Entry<String, String> entry : systemProperties.entrySet()) {
-        args.add("-D" + entry.getKey() + "=" + entry.getValue());
+        jvmOptions.add("-D" + entry.getKey() + "=" + entry.getValue());
       }
     }
-    args.add("com.google.gwt.dev.Compiler");
-    args.addAll(CommandlineBuilder.buildArgs(getLog(), this));
-    if (failOnError != null) {
-      args.add(failOnError ? "-failOnError" : "-nofailOnError");
+    // The number of local workers doesn't affect the output, and is only computed (and logged) when compiling.
+    String flags = BuildFingerprint.hashFlags(project.getBasedir(),
+        getOutputAffectingArgs(getCompilerArgs(jvmOptions, getGwtArgs(null))));
+    BuildFingerprint fingerprint = readFingerprint();
+    if (!forceCompilation && isUptodate(sourceRoots, flags, fingerprint)) {
+      getLog().info("Compilation output seems uptodate. GWT compilation skipped.");
+      return;
     }
-    if (compilerArgs != null) {
-      args.addAll(compilerArgs);
+
+    String workers = null;
+    if (localWorkers != null) {
+      // When compiling in-process, the compiler shares the heap of the Maven JVM.
+      workers = CommandlineBuilder.getLocalWorkers(getLog(), localWorkers, "in-process".equals(executionMode)
+          ? Collections.singletonList("-Xmx" + Runtime.getRuntime().maxMemory())
+          : jvmArgs);
     }
-    args.add(moduleName);
+    List<String> gwtArgs = getGwtArgs(workers);
+    List<String> args = getCompilerArgs(jvmOptions, gwtArgs);
 
     Set<String> cp = new LinkedHashSet<>();
     cp.addAll(sourceRoots);
@@ -222,93 +367,226 @@ public class CompileMojo extends AbstractMojo implements GwtOptions {
     }
 
     CommandLine commandLine = new CommandLine(getLog(), project, session, toolchainManager, jdkToolchain, jvm);
-    commandLine.execute(cp, args);
+    if (classpathFile) {
+      commandLine.setClasspathFile(new ClasspathFile(new File(project.getBuild().getDirectory(), "gwt/classpath")));
+    }
+    commandLine.setLogging(logToFile ? new File(project.getBuild().getDirectory(), "gwt/logs") : null, logRateLimit);
+    if (classDataSharing) {
+      commandLine.setClassDataSharing(new ClassDataSharing(getLog(),
+          new File(project.getBuild().getDirectory(), "gwt/cds"),
+          ClassDataSharing.getGwtDevClasspath(project.getArtifacts(), new ScopeArtifactFilter(Artifact.SCOPE_COMPILE)),
+          jvmOptions));
+    }
+    if (writeReports) {
+      commandLine.setReports(new File(project.getBuild().getDirectory(), "gwt/reports"),
+          aggregateReports
+              ? new File(session.getTopLevelProject().getBuild().getDirectory(), "gwt/reports.jsonl")
+              : null);
+    }
+    if ("daemon".equals(executionMode)) {
+      new CompilerDaemonClient(getLog(), commandLine.getExecutable(), jvmOptions, getGwtDevJar(), daemonIdleTimeout)
+          .execute(cp, gwtArgs);
+    } else if ("in-process".equals(executionMode) && session.isParallel()) {
+      // System properties (and the security manager) are global to the JVM, and would leak into other builds.
+      getLog().warn("Cannot compile in-process in a parallel build, forking a JVM instead");
+      commandLine.execute(cp, args);
+    } else if ("in-process".equals(executionMode)) {
+      if ((jvmArgs != null && !jvmArgs.isEmpty()) || StringUtils.isNotBlank(jvm) || (jdkToolchain != null && !jdkToolchain.isEmpty())) {
+        getLog().warn("jvmArgs, jvm and jdkToolchain are ignored when compiling in-process");
+      }
+      new InProcessCompiler(getLog()).execute(cp,
+          systemProperties == null ? Collections.<String, String>emptyMap() : systemProperties, gwtArgs);
+    } else if ("fork".equals(executionMode) && distributePermutations) {
+      new PermutationScheduler(getLog(), commandLine).compile(cp, jvmOptions, gwtArgs, workDir,
+          MachineResources.getMaxConcurrentJvms(jvmArgs));
+    } else if ("fork".equals(executionMode)) {
+      commandLine.execute(cp, args);
+    } else {
+      throw new MojoExecutionException("Unknown execution mode: " + executionMode);
+    }
 
     // XXX: workaround for GWT 2.7.0 not setting nocache.js lastModified correctly.
     if (isStale(sourceRoots)) {
-      final String shortName = getModuleShortName();
-      final File nocacheJs = new File(webappDirectory, shortName + File.separator + shortName + ".nocache.js");
-      nocacheJs.setLastModified(System.currentTimeMillis());
+      getNocacheJs().setLastModified(System.currentTimeMillis());
+    }
+
+    try {
+      computeFingerprint(sourceRoots, flags, fingerprint).write(getFingerprintFile());
+    } catch (IOException e) {
+      getLog().warn("Could not record the inputs of the compilation, next build won't be able to skip it: " + e.getMessage());
+      getFingerprintFile().delete();
     }
   }
 
-  private boolean isStale(List<String> sourceRoots) throws MojoExecutionException {
-    if (!webappDirectory.exists()) {
-      return true;
+  private File getGwtDevJar() throws MojoExecutionException {
+    for (Artifact artifact : project.getArtifacts()) {
+      if ("gwt-dev".equals(artifact.getArtifactId())
+          && ("org.gwtproject".equals(artifact.getGroupId()) || "com.google.gwt".equals(artifact.getGroupId()))) {
+        return artifact.getFile();
+      }
     }
+    throw new MojoExecutionException("gwt-dev is missing from the project dependencies, cannot use the compiler daemon");
+  }
 
-    // TODO: take various flags into account
+  private File getNocacheJs() {
     final String shortName = getModuleShortName();
-    final File nocacheJs = new File(webappDirectory, shortName + File.separator + shortName + ".nocache.js");
-    if (!nocacheJs.isFile()) {
-      getLog().debug(nocacheJs.getPath() + " file found or is not a file: recompiling");
-      return true;
+    return new File(webappDirectory, shortName + File.separator + shortName + ".nocache.js");
+  }
+
+  private File getFingerprintFile() {
+    return new File(workDir, moduleName + ".fingerprint");
+  }
+
+  private @Nullable BuildFingerprint readFingerprint() {
+    try {
+      return BuildFingerprint.read(getFingerprintFile());
+    } catch (IOException e) {
+      getLog().debug("Could not read " + getFingerprintFile() + ": " + e.getMessage());
+      return null;
     }
-    if (getLog().isDebugEnabled()) {
-      getLog().debug("Found *.nocache.js at " + nocacheJs.getAbsolutePath());
+  }
+
+  /**
+   * Returns the arguments that can change the compilation output.
+   * <p>
+   * The number of workers and the log level are excluded, such that e.g. compiling on another machine, or with
+   * {@code -Dgwt.logLevel=DEBUG}, can reuse the output.
+   */
+  private List<String> getGwtArgs(@Nullable String workers) {
+    List<String> gwtArgs = new ArrayList<>();
+    gwtArgs.addAll(CommandlineBuilder.buildArgs(this, workers));
+    if (failOnError != null) {
+      gwtArgs.add(failOnError ? "-failOnError" : "-nofailOnError");
+    }
+    if (compilerArgs != null) {
+      gwtArgs.addAll(compilerArgs);
     }
+    gwtArgs.add(moduleName);
+    return gwtArgs;
+  }
 
-    StaleSourceScanner scanner = new StaleSourceScanner(staleMillis);
-    scanner.addSourceMapping(new SourceMapping() {
-      final Set<File> targetFiles = Collections.singleton(nocacheJs);
+  private static List<String> getCompilerArgs(List<String> jvmOptions, List<String> gwtArgs) {
+    List<String> args = new ArrayList<>();
+    args.addAll(jvmOptions);
+    args.add("com.google.gwt.dev.Compiler");
+    args.addAll(gwtArgs);
+    return args;
+  }
 
-      @Override
-      public Set<File> getTargetFiles(File targetDir, String source) throws InclusionScanException {
-        return targetFiles;
+  private static List<String> getOutputAffectingArgs(List<String> args) {
+    List<String> result = new ArrayList<>(args.size());
+    for (Iterator<String> it = args.iterator(); it.hasNext(); ) {
+      String arg = it.next();
+      if (("-localWorkers".equals(arg) || "-logLevel".equals(arg)) && it.hasNext()) {
+        it.next();
+        continue;
       }
-    });
+      result.add(arg);
+    }
+    return result;
+  }
 
-    // sources (incl. generated ones)
+  /**
+   * Returns the inputs of the compilation: sources (incl. generated ones), compiled (processed) classes and resources
+   * (incl. processed and generated ones), POM, and dependencies.
+   */
+  private List<File> getInputs(List<String> sourceRoots) {
+    List<File> inputs = new ArrayList<>();
     for (String sourceRoot : sourceRoots) {
-      if (isStale(scanner, new File(sourceRoot), nocacheJs)) {
-        return true;
-      }
-    }
-    // compiled (processed) classes and resources (incl. processed and generated ones)
-    if (isStale(scanner, new File(project.getBuild().getOutputDirectory()), nocacheJs)) {
-      return true;
-    }
-    // POM
-    if (isStale(scanner, project.getFile(), nocacheJs)) {
-      return true;
+      inputs.add(new File(sourceRoot));
     }
-    // dependencies
+    inputs.add(new File(project.getBuild().getOutputDirectory()));
+    inputs.add(project.getFile());
     ScopeArtifactFilter artifactFilter = new ScopeArtifactFilter(Artifact.SCOPE_COMPILE);
     for (Artifact artifact : project.getArtifacts()) {
-      if (!artifactFilter.include(artifact)) {
-        continue;
-      }
-      if (isStale(scanner, artifact.getFile(), nocacheJs)) {
-        return true;
+      if (artifactFilter.include(artifact)) {
+        inputs.add(artifact.getFile());
       }
     }
+    return inputs;
+  }
 
-    return false;
+  private BuildFingerprint computeFingerprint(List<String> sourceRoots, String flags,
+      @Nullable BuildFingerprint previous) throws IOException {
+    return BuildFingerprint.compute(project.getBasedir(), getInputs(sourceRoots), flags, previous);
   }
 
-  private boolean isStale(StaleSourceScanner scanner, File sourceFile, File targetFile) throws MojoExecutionException {
-    if (!sourceFile.isDirectory()) {
-      boolean stale = (targetFile.lastModified() + staleMillis < sourceFile.lastModified());
-      if (stale && getLog().isDebugEnabled()) {
-        getLog().debug("Source file is newer than nocache.js, recompiling: " + sourceFile.getAbsolutePath());
-      }
-      return stale;
+  /**
+   * Checks whether the compilation output is up to date.
+   * <p>
+   * The output is never up to date if the compiler flags differ from the ones recorded for the previous compilation
+   * (or no such record exists). Timestamps are then checked, as this is cheap; when some inputs appear to be newer
+   * than the output, their content is compared with the one recorded for the previous compilation.
+   */
+  private boolean isUptodate(List<String> sourceRoots, String flags, @Nullable BuildFingerprint fingerprint)
+      throws MojoExecutionException {
+    if (!getNocacheJs().isFile()) {
+      getLog().debug(getNocacheJs().getPath() + " file not found or is not a file: recompiling");
+      return false;
+    }
+    if (fingerprint == null) {
+      getLog().debug(getFingerprintFile().getPath() + " file not found or unreadable: recompiling");
+      return false;
+    }
+    if (!fingerprint.getFlags().equals(flags)) {
+      getLog().debug("Compiler flags have changed, recompiling");
+      return false;
+    }
+    if (!isStale(sourceRoots)) {
+      return true;
+    }
+    BuildFingerprint current;
+    try {
+      current = computeFingerprint(sourceRoots, flags, fingerprint);
+    } catch (IOException e) {
+      getLog().warn("Could not compute the fingerprint of the compilation inputs, recompiling: " + e.getMessage());
+      return false;
+    }
+    if (!current.matches(fingerprint)) {
+      getLog().debug("Content of inputs has changed, recompiling");
+      return false;
+    }
+    getLog().debug("Inputs are newer than nocache.js but their content hasn't changed");
+    // Record the new timestamps so hashes won't need to be recomputed,
+    // and touch nocache.js so next build can rely on timestamps only.
+    try {
+      current.write(getFingerprintFile());
+    } catch (IOException e) {
+      getLog().debug("Could not update " + getFingerprintFile() + ": " + e.getMessage());
+    }
+    getNocacheJs().setLastModified(System.currentTimeMillis());
+    return true;
+  }
+
+  boolean isStale(List<String> sourceRoots) throws MojoExecutionException {
+    if (!webappDirectory.exists()) {
+      return true;
+    }
+
+    final File nocacheJs = getNocacheJs();
+    if (!nocacheJs.isFile()) {
+      getLog().debug(nocacheJs.getPath() + " file found or is not a file: recompiling");
+      return true;
+    }
+    if (getLog().isDebugEnabled()) {
+      getLog().debug("Found *.nocache.js at " + nocacheJs.getAbsolutePath());
     }
 
+    boolean debug = getLog().isDebugEnabled();
+    List<File> staleFiles;
     try {
-      Set<File> sourceFiles = scanner.getIncludedSources(sourceFile, webappDirectory);
-      boolean stale = !sourceFiles.isEmpty();
-      if (stale && getLog().isDebugEnabled()) {
-        StringBuilder sb = new StringBuilder();
-        for (File source : sourceFiles) {
-          sb.append("\n - ").append(source.getAbsolutePath());
-        }
-        getLog().debug("Source files are newer than nocache.js, recompiling: " + sb.toString());
+      staleFiles = new StaleFileScanner(nocacheJs.lastModified() + staleMillis, debug).scan(getInputs(sourceRoots));
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error scanning for stale files to recompile: " + e.getMessage(), e);
+    }
+    if (!staleFiles.isEmpty() && debug) {
+      StringBuilder sb = new StringBuilder();
+      for (File source : staleFiles) {
+        sb.append("\n - ").append(source.getAbsolutePath());
       }
-      return stale;
-    } catch (InclusionScanException e) {
-      throw new MojoExecutionException("Error scanning source root: \'" + sourceFile.getPath() + "\' for stale files to recompile.", e);
+      getLog().debug("Source files are newer than nocache.js, recompiling: " + sb.toString());
     }
+    return !staleFiles.isEmpty();
   }
 
   private String getModuleShortName() {
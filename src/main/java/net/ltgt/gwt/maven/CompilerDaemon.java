@@ -0,0 +1,218 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A long-lived JVM running GWT compilations on behalf of {@link CompilerDaemonClient}.
+ * <p>
+ * The daemon is launched with the plugin JAR as its sole classpath entry, so this class must only depend on the JDK.
+ * GWT classes (and the project's dependencies) are loaded in a class loader that's reused across compilations
+ * (see {@link GwtCompilerRunner}), which is where the time is saved compared to forking a JVM for each compilation:
+ * JIT warmup, class loading and JDT initialization are only paid once.
+ * <p>
+ * The daemon listens on a loopback address, advertises its port and a random token in a state file (only readable by
+ * the current user, see {@link OwnerOnlyFiles}), and exits after some idle time. Compilations are run one at a time,
+ * as GWT reads the {@code java.class.path} system property.
+ */
+public class CompilerDaemon {
+  static final String PORT = "port";
+  static final String TOKEN = "token";
+
+  static final int OUT = 1;
+  static final int ERR = 2;
+  static final int EXIT = 0;
+
+  /**
+   * Handles a request from a client, once authenticated.
+   */
+  interface Handler {
+    /**
+     * @return whether to keep serving requests; the state file is then deleted before the connection is closed, so
+     *     the client starts a new daemon
+     */
+    boolean handle(DataInputStream in, DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * Usage: {@code CompilerDaemon <state file> <idle timeout in seconds>}
+   */
+  public static void main(String[] args) throws Exception {
+    serve(new File(args[0]), Integer.parseInt(args[1]), CompilerDaemon::handle);
+    // Terminate threads possibly left behind by generators.
+    System.exit(0);
+  }
+
+  /**
+   * Serves requests one at a time, until the daemon has been idle for the given time or the handler asks to stop.
+   */
+  static void serve(File stateFile, int idleTimeout, Handler handler) throws IOException {
+    byte[] random = new byte[16];
+    new SecureRandom().nextBytes(random);
+    String token = toHex(random);
+
+    try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      serverSocket.setSoTimeout(idleTimeout * 1000);
+      writeState(stateFile, serverSocket.getLocalPort(), token);
+      System.out.println("Listening on port " + serverSocket.getLocalPort());
+      try {
+        for (;;) {
+          try (Socket socket = serverSocket.accept()) {
+            // The socket has inherited the idle timeout from the server socket; the client might be slow to send its
+            // request.
+            socket.setSoTimeout(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (token.equals(in.readUTF()) && !handler.handle(in, out)) {
+              stateFile.delete();
+              break;
+            }
+          } catch (SocketTimeoutException e) {
+            System.out.println("Idle for " + idleTimeout + " seconds, exiting.");
+            break;
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }
+      } finally {
+        stateFile.delete();
+      }
+    }
+  }
+
+  private static void writeState(File stateFile, int port, String token) throws IOException {
+    Properties state = new Properties();
+    state.setProperty(PORT, Integer.toString(port));
+    state.setProperty(TOKEN, token);
+    File tmp = new File(stateFile.getPath() + ".tmp");
+    OwnerOnlyFiles.createFile(tmp);
+    try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+      state.store(os, null);
+    }
+    Files.move(tmp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static boolean handle(DataInputStream in, final DataOutputStream out) throws IOException {
+    List<String> classpath = readList(in);
+    List<String> args = readList(in);
+
+    PrintStream oldOut = System.out;
+    PrintStream oldErr = System.err;
+    PrintStream newOut = new PrintStream(new FrameOutputStream(out, OUT), true, "UTF-8");
+    PrintStream newErr = new PrintStream(new FrameOutputStream(out, ERR), true, "UTF-8");
+    System.setOut(newOut);
+    System.setErr(newErr);
+    int exitCode;
+    try {
+      exitCode = GwtCompilerRunner.compile(classpath, args, new GwtCompilerRunner.ClassLoaderFactory() {
+        @Override
+        public URLClassLoader newClassLoader(URL[] urls) {
+          return new URLClassLoader(urls, CompilerDaemon.class.getClassLoader().getParent());
+        }
+      }, null) ? 0 : 1;
+    } catch (Throwable t) {
+      t.printStackTrace();
+      exitCode = 1;
+    } finally {
+      System.setOut(oldOut);
+      System.setErr(oldErr);
+      newOut.flush();
+      newErr.flush();
+    }
+    writeExit(out, exitCode);
+    return true;
+  }
+
+  static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+    synchronized (out) {
+      out.writeByte(EXIT);
+      out.writeInt(exitCode);
+      out.flush();
+    }
+  }
+
+  static List<String> readList(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(in.readUTF());
+    }
+    return list;
+  }
+
+  static void writeList(DataOutputStream out, List<String> list) throws IOException {
+    out.writeInt(list.size());
+    for (String s : list) {
+      out.writeUTF(s);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Sends everything written to it as frames to the client. Errors are ignored, as threads started during the
+   * compilation could still write to it after the client disconnected.
+   */
+  static class FrameOutputStream extends OutputStream {
+    private final DataOutputStream out;
+    private final int type;
+
+    FrameOutputStream(DataOutputStream out, int type) {
+      this.out = out;
+      this.type = type;
+    }
+
+    @Override
+    public void write(int b) {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      synchronized (out) {
+        try {
+          out.writeByte(type);
+          out.writeInt(len);
+          out.write(b, off, len);
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+
+    @Override
+    public void flush() {
+      synchronized (out) {
+        try {
+          out.flush();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+}
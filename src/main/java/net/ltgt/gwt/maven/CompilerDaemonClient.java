@@ -0,0 +1,309 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Runs GWT compilations in a {@link CompilerDaemon}, starting one if needed.
+ * <p>
+ * Daemons are identified by the Java executable, JVM arguments and gwt-dev JAR, so they're reused across modules
+ * and builds that share them. Their state and log files live in a per-user temporary directory, only accessible to
+ * that user, as the state files hold the token authenticating the clients.
+ * <p>
+ * This is also used to talk to other daemons serving requests with {@link CompilerDaemon#serve}, such as the
+ * {@link TestDaemon}.
+ */
+class CompilerDaemonClient {
+  private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * A request to a daemon, and the handling of its response.
+   */
+  interface Exchange {
+    void writeRequest(DataOutputStream request) throws IOException;
+
+    /**
+     * Handles a frame other than output and exit, sent by the daemon.
+     */
+    default void handleFrame(int type, DataInputStream response, DataOutputStream request) throws IOException {
+      throw new IOException("Unexpected frame of type " + type);
+    }
+  }
+
+  private final Log log;
+  private final String executable;
+  private final List<String> jvmArgs;
+  private final Class<?> mainClass;
+  private final String description;
+  private final List<String> keyParts;
+  private final int idleTimeout;
+
+  CompilerDaemonClient(Log log, String executable, List<String> jvmArgs, File gwtDev, int idleTimeout) {
+    this(log, executable, jvmArgs, CompilerDaemon.class, "GWT compiler daemon",
+        Collections.singletonList(gwtDev.getAbsolutePath() + '@' + gwtDev.lastModified()), idleTimeout);
+  }
+
+  /**
+   * @param mainClass the daemon's main class, which must be in the plugin JAR
+   * @param keyParts identify the daemon, in addition to the Java executable, JVM arguments and main class
+   */
+  CompilerDaemonClient(Log log, String executable, List<String> jvmArgs, Class<?> mainClass, String description,
+      List<String> keyParts, int idleTimeout) {
+    this.log = log;
+    this.executable = executable;
+    this.jvmArgs = jvmArgs;
+    this.mainClass = mainClass;
+    this.description = description;
+    this.keyParts = keyParts;
+    this.idleTimeout = idleTimeout;
+  }
+
+  void execute(Iterable<String> classpath, List<String> arguments) throws MojoExecutionException {
+    List<String> cp = new ArrayList<>();
+    for (String entry : classpath) {
+      cp.add(entry);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Classpath: " + String.join(File.pathSeparator, cp));
+      log.debug("Arguments: " + String.join(" ", arguments));
+    }
+    int result = execute(request -> {
+      CompilerDaemon.writeList(request, cp);
+      CompilerDaemon.writeList(request, arguments);
+    });
+    if (result != 0) {
+      throw new MojoExecutionException("GWT exited with status " + result);
+    }
+  }
+
+  /**
+   * Sends the request to the daemon, starting one if needed, and returns its exit code. Its output is logged.
+   */
+  int execute(Exchange exchange) throws MojoExecutionException {
+    File pluginJar = CommandLine.getPluginJar();
+    String key = computeKey(pluginJar);
+    File stateDir = new File(System.getProperty("java.io.tmpdir"), "gwt-maven-plugin-" + System.getProperty("user.name"));
+    File stateFile = new File(stateDir, key + ".properties");
+
+    Integer result;
+    try {
+      result = tryExecute(connect(stateDir, stateFile, key, pluginJar), exchange);
+      if (result == null) {
+        // The daemon went away before handling our request (e.g. it was reaching its idle timeout); start a new one.
+        log.debug(description + " disconnected, retrying");
+        stateFile.delete();
+        result = tryExecute(connect(stateDir, stateFile, key, pluginJar), exchange);
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error communicating with the " + description + ": " + e.getMessage(), e);
+    }
+    if (result == null) {
+      throw new MojoExecutionException(description + " disconnected, see its logs in " + stateDir);
+    }
+    return result;
+  }
+
+  private @Nullable Integer tryExecute(Socket socket, Exchange exchange) throws IOException {
+    try (Socket s = socket;
+        LogOutputStream out = new LogOutputStream() {
+          @Override
+          protected void processLine(String line, int logLevel) {
+            log.info(line);
+          }
+        };
+        LogOutputStream err = new LogOutputStream() {
+          @Override
+          protected void processLine(String line, int logLevel) {
+            log.warn(line);
+          }
+        }) {
+      DataOutputStream request = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+      exchange.writeRequest(request);
+      request.flush();
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      byte[] buffer = new byte[8192];
+      boolean receivedOutput = false;
+      for (;;) {
+        int type;
+        try {
+          type = in.readByte();
+        } catch (EOFException e) {
+          if (receivedOutput) {
+            throw e;
+          }
+          return null;
+        }
+        if (type == CompilerDaemon.EXIT) {
+          return in.readInt();
+        }
+        receivedOutput = true;
+        if (type != CompilerDaemon.OUT && type != CompilerDaemon.ERR) {
+          exchange.handleFrame(type, in, request);
+          continue;
+        }
+        OutputStream target = type == CompilerDaemon.ERR ? err : out;
+        for (int remaining = in.readInt(); remaining > 0; ) {
+          int read = in.read(buffer, 0, Math.min(remaining, buffer.length));
+          if (read < 0) {
+            throw new EOFException();
+          }
+          target.write(buffer, 0, read);
+          remaining -= read;
+        }
+      }
+    }
+  }
+
+  private Socket connect(File stateDir, File stateFile, String key, File pluginJar) throws IOException, MojoExecutionException {
+    // Serialize daemon startup within this JVM (parallel builds) and across JVMs (concurrent builds).
+    synchronized (CompilerDaemonClient.class) {
+      OwnerOnlyFiles.createDirectory(stateDir);
+      File lockFile = new File(stateDir, key + ".lock");
+      OwnerOnlyFiles.createFile(lockFile);
+      try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.WRITE)) {
+        // The lock is released when the channel is closed.
+        channel.lock();
+        Socket socket = tryConnect(stateFile);
+        if (socket == null) {
+          startDaemon(stateDir, stateFile, key, pluginJar);
+          socket = tryConnect(stateFile);
+          if (socket == null) {
+            throw new MojoExecutionException("Cannot connect to the " + description + ", see its logs in " + stateDir);
+          }
+        }
+        return socket;
+      }
+    }
+  }
+
+  private @Nullable Socket tryConnect(File stateFile) {
+    Properties state = new Properties();
+    try (InputStream is = Files.newInputStream(stateFile.toPath())) {
+      state.load(is);
+    } catch (IOException e) {
+      return null;
+    }
+    Socket socket = null;
+    try {
+      socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(state.getProperty(CompilerDaemon.PORT)));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeUTF(state.getProperty(CompilerDaemon.TOKEN));
+      out.flush();
+      return socket;
+    } catch (IOException | RuntimeException e) {
+      log.debug("Cannot connect to " + description + ": " + e.getMessage());
+      if (socket != null) {
+        try {
+          socket.close();
+        } catch (IOException ignored) {
+          // ignore
+        }
+      }
+      stateFile.delete();
+      return null;
+    }
+  }
+
+  private void startDaemon(File stateDir, File stateFile, String key, File pluginJar)
+      throws IOException, MojoExecutionException {
+    List<String> command = new ArrayList<>();
+    command.add(executable);
+    command.addAll(jvmArgs);
+    command.add("-cp");
+    command.add(pluginJar.getPath());
+    command.add(mainClass.getName());
+    command.add(stateFile.getAbsolutePath());
+    command.add(Integer.toString(idleTimeout));
+
+    File logFile = new File(stateDir, key + ".log");
+    OwnerOnlyFiles.createFile(logFile);
+    log.info("Starting " + description + ", logging to " + logFile);
+    if (log.isDebugEnabled()) {
+      log.debug("Command: " + String.join(" ", command));
+    }
+    Process process = new ProcessBuilder(command)
+        .directory(stateDir)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile))
+        .start();
+    process.getOutputStream().close();
+
+    long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+    while (!stateFile.isFile()) {
+      if (!isAlive(process)) {
+        throw new MojoExecutionException(description + " failed to start, see its logs in " + logFile);
+      }
+      if (System.currentTimeMillis() > deadline) {
+        process.destroy();
+        throw new MojoExecutionException("Timed out waiting for the " + description + " to start, see its logs in "
+            + logFile);
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MojoExecutionException("Interrupted while waiting for the " + description + " to start", e);
+      }
+    }
+  }
+
+  private static boolean isAlive(Process process) {
+    try {
+      process.exitValue();
+      return false;
+    } catch (IllegalThreadStateException e) {
+      return true;
+    }
+  }
+
+  private String computeKey(File pluginJar) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+    List<String> parts = new ArrayList<>();
+    parts.add(executable);
+    parts.addAll(jvmArgs);
+    parts.add(pluginJar.getAbsolutePath() + '@' + pluginJar.lastModified());
+    parts.add(mainClass.getName());
+    parts.addAll(keyParts);
+    for (String part : parts) {
+      digest.update(part.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    StringBuilder sb = new StringBuilder();
+    byte[] bytes = digest.digest();
+    for (int i = 0; i < 16; i++) {
+      sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,164 @@
+package net.ltgt.gwt.maven;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Forwards the output of a forked JVM to the Maven log on its own thread, such that the threads reading the output of
+ * the JVM don't wait for the Maven log, and the JVM doesn't block writing to a full pipe.
+ * <p>
+ * Lines are queued in a bounded queue, and taken in batches. They can also be written to a file, in which case only
+ * errors and warnings are logged, followed by a summary. Otherwise, the number of lines logged per second can be
+ * limited; errors and warnings are always logged.
+ */
+class ForkLog implements Closeable {
+  private static final int CAPACITY = 10_000;
+  private static final int BATCH_SIZE = 1_000;
+
+  private static class Line {
+    final String text;
+    final boolean stderr;
+
+    Line(String text, boolean stderr) {
+      this.text = text;
+      this.stderr = stderr;
+    }
+  }
+
+  private static final Line END = new Line("", false);
+
+  private final Log log;
+  private final @Nullable File file;
+  private @Nullable Writer writer;
+  private final int rateLimit;
+  private final BlockingQueue<Line> queue = new ArrayBlockingQueue<>(CAPACITY);
+  private final Thread thread;
+  private long lines;
+  private long dropped;
+  private long windowStart;
+  private int windowLines;
+
+  /**
+   * @param file the file where to write all the lines, or {@code null} to log all of them
+   * @param rateLimit the maximum number of lines to log per second, or {@code 0} for no limit; ignored with a file
+   */
+  ForkLog(Log log, @Nullable File file, int rateLimit) throws IOException {
+    this.log = log;
+    this.file = file;
+    this.rateLimit = rateLimit;
+    if (file != null) {
+      file.getParentFile().mkdirs();
+      writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+    thread = new Thread(this::run, "GWT log");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /** Adds a line from the standard output of the JVM. */
+  void info(String line) {
+    put(new Line(line, false));
+  }
+
+  /** Adds a line from the standard error of the JVM. */
+  void warn(String line) {
+    put(new Line(line, true));
+  }
+
+  private void put(Line line) {
+    try {
+      queue.put(line);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Waits for all the lines to be logged, and logs a summary if lines have been written to a file, or not logged.
+   */
+  @Override
+  public void close() throws IOException {
+    put(END);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writer != null) {
+      writer.close();
+      log.info("Output written to " + file + " (" + lines + " lines)");
+    }
+    if (dropped > 0) {
+      log.info(dropped + " lines of output not logged, above the limit of " + rateLimit + " lines per second");
+    }
+  }
+
+  private void run() {
+    List<Line> batch = new ArrayList<>(BATCH_SIZE);
+    try {
+      for (;;) {
+        batch.add(queue.take());
+        queue.drainTo(batch, BATCH_SIZE - 1);
+        for (Line line : batch) {
+          if (line == END) {
+            return;
+          }
+          process(line);
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // Don't wait for the remaining lines.
+    }
+  }
+
+  private void process(Line line) {
+    lines++;
+    boolean important = line.stderr || line.text.contains("[ERROR]") || line.text.contains("[WARN]");
+    if (writer != null) {
+      try {
+        writer.write(line.text);
+        writer.write('\n');
+      } catch (IOException e) {
+        log.warn("Could not write to " + file + ", logging the output instead: " + e.getMessage());
+        try {
+          writer.close();
+        } catch (IOException ignored) {
+          // already reported
+        }
+        writer = null;
+      }
+      if (writer != null && !important) {
+        return;
+      }
+    } else if (rateLimit > 0 && !important) {
+      long now = System.nanoTime();
+      if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+        windowStart = now;
+        windowLines = 0;
+      }
+      if (windowLines >= rateLimit) {
+        dropped++;
+        return;
+      }
+      windowLines++;
+    }
+    if (line.stderr) {
+      log.warn(line.text);
+    } else {
+      log.info(line.text);
+    }
+  }
+}
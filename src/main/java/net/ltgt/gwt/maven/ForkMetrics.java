@@ -0,0 +1,105 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Properties;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runs the main class of a forked JVM, and records metrics of the JVM to a file when it exits, for {@link ForkReport}.
+ * <p>
+ * This class is added to the classpath of the forked JVM through the plugin JAR, so it must only depend on the JDK.
+ */
+public class ForkMetrics {
+  static final String UPTIME = "uptime";
+  static final String CPU_TIME = "cpuTime";
+  static final String GC_TIME = "gcTime";
+  static final String GC_COUNT = "gcCount";
+  static final String PEAK_HEAP = "peakHeap";
+  static final String PEAK_RSS = "peakRss";
+
+  /**
+   * Usage: {@code ForkMetrics <metrics file> <main class> <arguments…>}
+   */
+  public static void main(String[] args) throws Throwable {
+    final File metricsFile = new File(args[0]);
+    // GWT calls System.exit, so record the metrics from a shutdown hook.
+    Runtime.getRuntime().addShutdownHook(new Thread("gwt-fork-metrics") {
+      @Override
+      public void run() {
+        try {
+          write(metricsFile);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    });
+    Method main = Class.forName(args[1]).getMethod("main", String[].class);
+    try {
+      main.invoke(null, (Object) Arrays.copyOfRange(args, 2, args.length));
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static void write(File metricsFile) throws IOException {
+    Properties metrics = new Properties();
+    metrics.setProperty(UPTIME, Long.toString(ManagementFactory.getRuntimeMXBean().getUptime()));
+    try {
+      Object cpuTime = ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(new ObjectName("java.lang:type=OperatingSystem"), "ProcessCpuTime");
+      if (cpuTime instanceof Long && (Long) cpuTime >= 0) {
+        // nanoseconds
+        metrics.setProperty(CPU_TIME, Long.toString((Long) cpuTime / 1000000));
+      }
+    } catch (JMException | RuntimeException e) {
+      // ignore
+    }
+    long gcTime = 0;
+    long gcCount = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcTime += Math.max(0, gc.getCollectionTime());
+      gcCount += Math.max(0, gc.getCollectionCount());
+    }
+    metrics.setProperty(GC_TIME, Long.toString(gcTime));
+    metrics.setProperty(GC_COUNT, Long.toString(gcCount));
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+    }
+    metrics.setProperty(PEAK_HEAP, Long.toString(peakHeap));
+    try {
+      for (String line : Files.readAllLines(new File("/proc/self/status").toPath(), StandardCharsets.US_ASCII)) {
+        if (line.startsWith("VmHWM:")) {
+          // Value is in kB
+          long peakRss = Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim()) * 1024;
+          metrics.setProperty(PEAK_RSS, Long.toString(peakRss));
+          break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // Not Linux
+    }
+
+    File tmp = new File(metricsFile.getPath() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+      metrics.store(out, null);
+    }
+    Files.move(tmp.toPath(), metricsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,281 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Instrumentation report of a forked JVM, written as JSON.
+ * <p>
+ * The forked JVM is wrapped by {@link ForkMetrics}, which records the CPU time, GC time, peak heap and peak resident
+ * memory of the JVM. The wall-clock time and exit code are measured from the outside, and the timings of the
+ * compilation phases are derived from the compiler's output.
+ * <p>
+ * Reports can also be appended, one per line, to an aggregate file shared by all modules of the build.
+ */
+class ForkReport {
+  private static final String[][] PHASES = {
+      { "precompile", "\\s*(Compiling|Precompiling.*) module \\S+" },
+      { "compilePermutations", "\\s*Compiling \\d+ permutations?" },
+      { "link", "\\s*Link(ing into \\S.*| module \\S+)" },
+      // End of linking; there's nothing after it but the JVM exiting.
+      { "exit", "\\s*Link succeeded" },
+  };
+  private static final Pattern[] PHASE_PATTERNS = new Pattern[PHASES.length];
+  static {
+    for (int i = 0; i < PHASES.length; i++) {
+      PHASE_PATTERNS[i] = Pattern.compile(PHASES[i][1]);
+    }
+  }
+
+  /** Options of the java launcher taking their value as a separate argument. */
+  private static final Set<String> JAVA_OPTIONS_WITH_VALUE = new HashSet<>(Arrays.asList(
+      "-cp", "-classpath", "--class-path", "-p", "--module-path", "--upgrade-module-path", "--add-modules",
+      "--limit-modules", "--add-reads", "--add-exports", "--add-opens", "--patch-module", "--enable-native-access"));
+
+  /** Aggregate files already written to in this build, by start time of the build. */
+  private static final Map<File, Date> aggregates = new HashMap<>();
+
+  private final String project;
+  private final String mainClass;
+  private final List<String> arguments;
+  private final File reportsDirectory;
+  private final File metricsFile;
+  private final Date startTime = new Date();
+  private final long start = System.nanoTime();
+  private final List<String> phaseNames = new ArrayList<>();
+  private final List<Long> phaseStarts = new ArrayList<>();
+
+  /**
+   * @param project the identifier of the Maven project
+   * @param mainClass the main class of the forked JVM
+   * @param arguments the arguments to the main class
+   * @param reportsDirectory the directory where to write the report
+   */
+  ForkReport(String project, String mainClass, List<String> arguments, File reportsDirectory) {
+    this.project = project;
+    this.mainClass = mainClass;
+    this.arguments = arguments;
+    this.reportsDirectory = reportsDirectory;
+    this.metricsFile = new File(reportsDirectory, getName() + ".metrics");
+  }
+
+  /**
+   * Returns the file where {@link ForkMetrics} records the metrics of the JVM.
+   */
+  File getMetricsFile() {
+    return metricsFile;
+  }
+
+  /**
+   * Returns the index of the main class in the arguments of the java launcher, or {@code -1} if there's none.
+   */
+  static int indexOfMainClass(List<String> arguments) {
+    for (int i = 0; i < arguments.size(); i++) {
+      String arg = arguments.get(i);
+      if (JAVA_OPTIONS_WITH_VALUE.contains(arg)) {
+        i++;
+      } else if (!arg.startsWith("-")) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the name of the report.
+   */
+  String getName() {
+    return getName(mainClass, arguments);
+  }
+
+  /**
+   * Returns the name of the files about a JVM with the given main class and arguments: the module name, main class
+   * and, when compiling some permutations, their indices.
+   */
+  static String getName(String mainClass, List<String> arguments) {
+    String name = arguments.isEmpty() ? "" : arguments.get(arguments.size() - 1) + "-";
+    name += mainClass.substring(mainClass.lastIndexOf('.') + 1);
+    int perms = arguments.indexOf("-perms");
+    if (perms >= 0 && perms + 1 < arguments.size()) {
+      name += "-" + arguments.get(perms + 1).replace(' ', '_');
+    }
+    return name;
+  }
+
+  /**
+   * Records the start of a phase if the line of output marks one.
+   */
+  synchronized void processLine(String line) {
+    for (int i = 0; i < PHASES.length; i++) {
+      if (PHASE_PATTERNS[i].matcher(line).matches()) {
+        phaseNames.add(PHASES[i][0]);
+        phaseStarts.add(elapsed());
+        return;
+      }
+    }
+  }
+
+  /**
+   * Writes the report to the given directory, and appends it to the aggregate file if there's one.
+   *
+   * @param buildStartTime the start time of the build, used to reset the aggregate file on the first write of a build
+   */
+  void write(Log log, int exitCode, @Nullable File aggregateFile, Date buildStartTime) {
+    long wallTime = elapsed();
+    String json = toJson(exitCode, wallTime, readMetrics());
+    metricsFile.delete();
+    File reportFile = new File(reportsDirectory, getName() + ".json");
+    try {
+      Files.write(reportFile.toPath(), (json + "\n").getBytes(StandardCharsets.UTF_8));
+      log.debug("Wrote report " + reportFile);
+    } catch (IOException e) {
+      log.warn("Could not write report " + reportFile + ": " + e.getMessage());
+    }
+    if (aggregateFile != null) {
+      try {
+        append(aggregateFile, json, buildStartTime);
+      } catch (IOException e) {
+        log.warn("Could not append report to " + aggregateFile + ": " + e.getMessage());
+      }
+    }
+  }
+
+  private static void append(File aggregateFile, String json, Date buildStartTime) throws IOException {
+    synchronized (aggregates) {
+      boolean first = !buildStartTime.equals(aggregates.put(aggregateFile, buildStartTime));
+      aggregateFile.getParentFile().mkdirs();
+      try (Writer writer = Files.newBufferedWriter(aggregateFile.toPath(), StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          first ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)) {
+        writer.write(json);
+        writer.write('\n');
+      }
+    }
+  }
+
+  private long elapsed() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+
+  private Properties readMetrics() {
+    Properties metrics = new Properties();
+    if (metricsFile.isFile()) {
+      try (InputStream in = Files.newInputStream(metricsFile.toPath())) {
+        metrics.load(in);
+      } catch (IOException e) {
+        // ignore, metrics will be missing from the report
+      }
+    }
+    return metrics;
+  }
+
+  private synchronized String toJson(int exitCode, long wallTime, Properties metrics) {
+    SimpleDateFormat iso8601 = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+    iso8601.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    StringBuilder sb = new StringBuilder("{");
+    appendString(sb, "project", project).append(',');
+    appendString(sb, "mainClass", mainClass).append(',');
+    sb.append("\"arguments\":[");
+    for (int i = 0; i < arguments.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      appendString(sb, null, arguments.get(i));
+    }
+    sb.append("],");
+    appendString(sb, "startTime", iso8601.format(startTime)).append(',');
+    sb.append("\"exitCode\":").append(exitCode).append(',');
+    sb.append("\"wallTimeMillis\":").append(wallTime);
+    appendMetric(sb, "jvmUptimeMillis", metrics, ForkMetrics.UPTIME);
+    appendMetric(sb, "cpuTimeMillis", metrics, ForkMetrics.CPU_TIME);
+    appendMetric(sb, "gcTimeMillis", metrics, ForkMetrics.GC_TIME);
+    appendMetric(sb, "gcCount", metrics, ForkMetrics.GC_COUNT);
+    appendMetric(sb, "peakHeapBytes", metrics, ForkMetrics.PEAK_HEAP);
+    appendMetric(sb, "peakRssBytes", metrics, ForkMetrics.PEAK_RSS);
+    sb.append(",\"phases\":[");
+    // Time before the first phase is spent starting the JVM and loading the module.
+    String name = "startup";
+    long phaseStart = 0;
+    for (int i = 0; i <= phaseNames.size(); i++) {
+      long phaseEnd = i < phaseNames.size() ? phaseStarts.get(i) : wallTime;
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append('{');
+      appendString(sb, "name", name).append(',');
+      sb.append("\"startMillis\":").append(phaseStart).append(',');
+      sb.append("\"durationMillis\":").append(phaseEnd - phaseStart);
+      sb.append('}');
+      if (i < phaseNames.size()) {
+        name = phaseNames.get(i);
+        phaseStart = phaseEnd;
+      }
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  private static void appendMetric(StringBuilder sb, String name, Properties metrics, String key) {
+    String value = metrics.getProperty(key);
+    if (value != null && value.matches("\\d+")) {
+      sb.append(",\"").append(name).append("\":").append(value);
+    }
+  }
+
+  private static StringBuilder appendString(StringBuilder sb, @Nullable String name, String value) {
+    if (name != null) {
+      sb.append('"').append(name).append("\":");
+    }
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    return sb.append('"');
+  }
+}
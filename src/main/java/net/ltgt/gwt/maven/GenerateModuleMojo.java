@@ -3,14 +3,22 @@ package net.ltgt.gwt.maven;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Enumeration;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.inject.Inject;
 
@@ -24,10 +32,8 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.classworlds.ClassWorld;
-import org.codehaus.plexus.classworlds.realm.ClassRealm;
-import org.codehaus.plexus.classworlds.realm.DuplicateRealmException;
 import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
 import org.codehaus.plexus.util.xml.XMLWriter;
@@ -35,6 +41,7 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 import org.codehaus.plexus.util.xml.Xpp3DomWriter;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.jspecify.annotations.Nullable;
 import org.sonatype.plexus.build.incremental.BuildContext;
 
 /**
@@ -107,6 +114,8 @@ public class GenerateModuleMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project}", required = true, readonly = true)
   private MavenProject project;
 
+  private static final String MAIN_MODULE_RESOURCE = "META-INF/gwt/mainModule";
+
   private final ScopeArtifactFilter artifactFilter = new ScopeArtifactFilter(Artifact.SCOPE_COMPILE_PLUS_RUNTIME);
 
   @Override
@@ -125,10 +134,8 @@ public class GenerateModuleMojo extends AbstractMojo {
 
     File outputFile = new File(outputDirectory, moduleName.replace('.', '/') + ".gwt.xml");
 
-    boolean uptodate;
     Xpp3Dom template;
     if (moduleTemplate != null && moduleTemplate.isFile()) {
-      uptodate = buildContext.isUptodate(outputFile, moduleTemplate);
       try {
         template = Xpp3DomBuilder.build(
           new BufferedReader(new InputStreamReader(new FileInputStream(moduleTemplate), StandardCharsets.UTF_8)));
@@ -136,85 +143,88 @@ public class GenerateModuleMojo extends AbstractMojo {
         throw new MojoExecutionException(e.getMessage(), e);
       }
     } else {
-      uptodate = true;
       template = new Xpp3Dom("module");
     }
 
-    if (uptodate) {
-      uptodate = buildContext.isUptodate(outputFile, project.getFile());
+    File cacheFile = getMainModuleCacheFile();
+    MainModuleCache cache;
+    try {
+      cache = MainModuleCache.read(cacheFile);
+    } catch (IOException e) {
+      getLog().debug("Could not read " + cacheFile + ": " + e.getMessage());
+      cache = new MainModuleCache();
     }
-
-    if (uptodate) {
-      // TODO: check dependencies (META-INF/gwt/mainModule might have changed)
-      // For now, we'll compare the content of the file before writing it
-//      getLog().info("Module is up to date; skipping.");
-//      return;
+    // Always generate the module, as it depends on the plugin configuration too; it's only written if it changed.
+    List<String> inherits = getInheritsFromDependencies(cache);
+    if (cache.isChanged()) {
+      writeMainModuleCache(cache);
     }
 
     outputFile.getParentFile().mkdirs();
     StringWriter writer = new StringWriter();
-    try {
-      XMLWriter xmlWriter = new PrettyPrintXMLWriter(writer);
-
-      xmlWriter.startElement("module");
-      // override or copy rename-to
-      String oldRenameTo = template.getAttribute("rename-to");
-      if (!StringUtils.isBlank(moduleShortName)) {
-        if (oldRenameTo != null) {
-          getLog().info("Overriding module short name " + oldRenameTo + " with " + moduleShortName);
-        }
-        xmlWriter.addAttribute("rename-to", moduleShortName);
-      } else if (oldRenameTo != null) {
-        xmlWriter.addAttribute("rename-to", oldRenameTo);
+    XMLWriter xmlWriter = new PrettyPrintXMLWriter(writer);
+
+    xmlWriter.startElement("module");
+    // override or copy rename-to
+    String oldRenameTo = template.getAttribute("rename-to");
+    if (!StringUtils.isBlank(moduleShortName)) {
+      if (oldRenameTo != null) {
+        getLog().info("Overriding module short name " + oldRenameTo + " with " + moduleShortName);
       }
-      // copy other attributes
-      for (String attrName : template.getAttributeNames()) {
-        if ("rename-to".equals(attrName)) {
-          continue;
-        }
-        xmlWriter.addAttribute(attrName, template.getAttribute(attrName));
+      xmlWriter.addAttribute("rename-to", moduleShortName);
+    } else if (oldRenameTo != null) {
+      xmlWriter.addAttribute("rename-to", oldRenameTo);
+    }
+    // copy other attributes
+    for (String attrName : template.getAttributeNames()) {
+      if ("rename-to".equals(attrName)) {
+        continue;
       }
+      xmlWriter.addAttribute(attrName, template.getAttribute(attrName));
+    }
 
-      boolean hasInherits = generateInheritsFromDependencies(xmlWriter);
-
-      // copy children
-      boolean hasSource = false;
-      for (Xpp3Dom child : template.getChildren()) {
-        if ("inherits".equals(child.getName())) {
-          hasInherits = true;
-        } else if ("source".equals(child.getName()) || "super-source".equals(child.getName())) {
-          hasSource = true;
-        }
-        Xpp3DomWriter.write(xmlWriter, child);
-      }
+    boolean hasInherits = !inherits.isEmpty();
+    for (String inherit : inherits) {
+      xmlWriter.startElement("inherits");
+      xmlWriter.addAttribute("name", inherit);
+      xmlWriter.endElement();
+    }
 
-      // insert <inherits name="com.google.gwt.core.Core"/> if no other inherited module
-      if (!hasInherits) {
-        xmlWriter.startElement("inherits");
-        xmlWriter.addAttribute("name", "com.google.gwt.core.Core");
-        xmlWriter.endElement();
+    // copy children
+    boolean hasSource = false;
+    for (Xpp3Dom child : template.getChildren()) {
+      if ("inherits".equals(child.getName())) {
+        hasInherits = true;
+      } else if ("source".equals(child.getName()) || "super-source".equals(child.getName())) {
+        hasSource = true;
       }
+      Xpp3DomWriter.write(xmlWriter, child);
+    }
 
-      if (!hasSource) {
-        // <source path="client" />
-        xmlWriter.startElement("source");
-        xmlWriter.addAttribute("path", "client");
-        xmlWriter.endElement();
-        // <source path="shared" />
-        xmlWriter.startElement("source");
-        xmlWriter.addAttribute("path", "shared");
-        xmlWriter.endElement();
-        // <super-source path="super" />
-        xmlWriter.startElement("super-source");
-        xmlWriter.addAttribute("path", "super");
-        xmlWriter.endElement();
-      }
+    // insert <inherits name="com.google.gwt.core.Core"/> if no other inherited module
+    if (!hasInherits) {
+      xmlWriter.startElement("inherits");
+      xmlWriter.addAttribute("name", "com.google.gwt.core.Core");
+      xmlWriter.endElement();
+    }
 
-      xmlWriter.endElement(); // module
-    } catch (IOException e) {
-      throw new MojoExecutionException(e.getMessage(), e);
+    if (!hasSource) {
+      // <source path="client" />
+      xmlWriter.startElement("source");
+      xmlWriter.addAttribute("path", "client");
+      xmlWriter.endElement();
+      // <source path="shared" />
+      xmlWriter.startElement("source");
+      xmlWriter.addAttribute("path", "shared");
+      xmlWriter.endElement();
+      // <super-source path="super" />
+      xmlWriter.startElement("super-source");
+      xmlWriter.addAttribute("path", "super");
+      xmlWriter.endElement();
     }
 
+    xmlWriter.endElement(); // module
+
     try {
       if (outputFile.isFile() && writer.toString().equals(FileUtils.fileRead(outputFile, "UTF-8"))) {
         getLog().info(outputFile.getAbsolutePath() + " up to date - skipping");
@@ -228,67 +238,148 @@ public class GenerateModuleMojo extends AbstractMojo {
     }
   }
 
-  private boolean generateInheritsFromDependencies(XMLWriter xmlWriter) throws IOException, MojoExecutionException {
+  private File getMainModuleCacheFile() {
+    return new File(project.getBuild().getDirectory(), "gwt/" + moduleName + ".mainModules");
+  }
+
+  private void writeMainModuleCache(MainModuleCache cache) {
+    try {
+      cache.write(getMainModuleCacheFile());
+    } catch (IOException e) {
+      getLog().warn("Could not write " + getMainModuleCacheFile() + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the main modules of the dependencies, in order, looking them up in the cache first and recording there
+   * the ones that weren't.
+   */
+  List<String> getInheritsFromDependencies(MainModuleCache cache) throws MojoExecutionException {
     if (!generateInheritsFromDependencies) {
-      return false;
+      return Collections.emptyList();
     }
 
-    ClassWorld world = new ClassWorld();
-    ClassRealm  realm;
-    try {
-      realm = world.newRealm("gwt", null);
-      for (Artifact artifact : dependencyArtifacts) {
-        if (!artifactFilter.include(artifact)) {
-          continue;
-        }
-        if (!artifact.getArtifactHandler().isAddedToClasspath()) {
-          continue;
-        }
-        if (artifact.getFile() == null) {
-          // This can happen for relocated artifacts
-          continue;
-        }
-        realm.addURL(artifact.getFile().toURI().toURL());
+    List<Artifact> artifacts = new ArrayList<>();
+    List<Artifact> misses = new ArrayList<>();
+    for (Artifact artifact : dependencyArtifacts) {
+      if (!artifactFilter.include(artifact)) {
+        continue;
+      }
+      if (!artifact.getArtifactHandler().isAddedToClasspath()) {
+        continue;
+      }
+      if (artifact.getFile() == null) {
+        // This can happen for relocated artifacts
+        continue;
+      }
+      artifacts.add(artifact);
+      if (!MainModuleCache.isCacheable(artifact) || cache.get(artifact) == null) {
+        misses.add(artifact);
       }
-    } catch (DuplicateRealmException | MalformedURLException e) {
-      throw new MojoExecutionException(e.getMessage(), e);
+    }
+    cache.retainAll(artifacts);
+    if (getLog().isDebugEnabled()) {
+      getLog().debug("Looking up META-INF/gwt/mainModule in " + misses.size() + " of " + artifacts.size()
+          + " dependencies, others are cached");
     }
 
-    boolean hasInherits = false;
-
-    Enumeration<URL> resources = realm.getResources("META-INF/gwt/mainModule");
-    while (resources.hasMoreElements()) {
-      final URL resource = resources.nextElement();
-      String moduleName = null;
-      try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8))) {
-        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-          line = removeCommentAndTrim(line);
-          if (line.isEmpty()) {
-            continue;
-          }
-          if (moduleName != null) {
-            getLog().warn("Configuration file contains more than one module name, picking first: " + resource);
-            break;
-          }
-//        if (!ModuleDef.isValidModuleName(moduleName)) {
-//          getLog().warn("Illegal configuration-file syntax, skipping " + resource);
-//          break;
-//        }
-          moduleName = line;
-          // Continue processing lines to warn of illegal syntax
+    Map<Artifact, String> mainModules = readMainModules(misses);
+    List<String> inherits = new ArrayList<>();
+    for (Artifact artifact : artifacts) {
+      String mainModule;
+      MainModuleCache.Entry entry = MainModuleCache.isCacheable(artifact) ? cache.get(artifact) : null;
+      if (entry != null) {
+        mainModule = entry.mainModule;
+      } else {
+        mainModule = mainModules.get(artifact);
+        if (MainModuleCache.isCacheable(artifact)) {
+          cache.put(artifact, mainModule);
         }
       }
+      if (mainModule != null) {
+        inherits.add(mainModule);
+      }
+    }
+    return inherits;
+  }
+
+  /**
+   * Reads the main modules of the given dependencies.
+   * <p>
+   * Only the {@code META-INF/gwt/mainModule} entry is read from each JAR, through its central directory, without
+   * creating a class loader. Dependencies are read in parallel, and each JAR is closed as soon as it's been read.
+   */
+  private Map<Artifact, String> readMainModules(List<Artifact> artifacts) throws MojoExecutionException {
+    if (artifacts.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    String[] contents = new String[artifacts.size()];
+    try {
+      IntStream.range(0, artifacts.size()).parallel().forEach(i -> {
+        try {
+          contents[i] = readMainModuleResource(artifacts.get(i).getFile());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw new MojoExecutionException(e.getCause().getMessage(), e.getCause());
+    }
 
+    // Parse sequentially so warnings are logged in a deterministic order
+    Map<Artifact, String> mainModules = new HashMap<>();
+    for (int i = 0; i < contents.length; i++) {
+      if (contents[i] == null) {
+        continue;
+      }
+      File file = artifacts.get(i).getFile();
+      String moduleName = parseMainModule(contents[i],
+          file.isFile() ? file + "!/" + MAIN_MODULE_RESOURCE : new File(file, MAIN_MODULE_RESOURCE).getPath());
       if (moduleName != null) {
-        hasInherits = true;
+        mainModules.put(artifacts.get(i), moduleName);
+      }
+    }
+    return mainModules;
+  }
 
-        xmlWriter.startElement("inherits");
-        xmlWriter.addAttribute("name", moduleName);
-        xmlWriter.endElement();
+  private static @Nullable String readMainModuleResource(File file) throws IOException {
+    if (file.isDirectory()) {
+      File resource = new File(file, MAIN_MODULE_RESOURCE);
+      return resource.isFile() ? new String(Files.readAllBytes(resource.toPath()), StandardCharsets.UTF_8) : null;
+    }
+    if (!file.isFile()) {
+      return null;
+    }
+    try (ZipFile zip = new ZipFile(file)) {
+      ZipEntry entry = zip.getEntry(MAIN_MODULE_RESOURCE);
+      if (entry == null || entry.isDirectory()) {
+        return null;
+      }
+      try (InputStream in = zip.getInputStream(entry)) {
+        return IOUtil.toString(in, "UTF-8");
       }
     }
+  }
 
-    return hasInherits;
+  private @Nullable String parseMainModule(String content, String resource) {
+    String moduleName = null;
+    for (String line : content.split("\\r?\\n|\\r")) {
+      line = removeCommentAndTrim(line);
+      if (line.isEmpty()) {
+        continue;
+      }
+      if (moduleName != null) {
+        getLog().warn("Configuration file contains more than one module name, picking first: " + resource);
+        break;
+      }
+//      if (!ModuleDef.isValidModuleName(moduleName)) {
+//        getLog().warn("Illegal configuration-file syntax, skipping " + resource);
+//        break;
+//      }
+      moduleName = line;
+      // Continue processing lines to warn of illegal syntax
+    }
+    return moduleName;
   }
 
   private String removeCommentAndTrim(String line) {
@@ -0,0 +1,47 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Named;
+
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.war.WarArchiver;
+import org.codehaus.plexus.archiver.zip.ConcurrentJarCreator;
+import org.codehaus.plexus.util.MatchPatterns;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link WarArchiver} storing files matching given patterns without compressing them.
+ * <p>
+ * Like other archivers, it's not a singleton: each injection gets a new instance.
+ */
+@Named
+class GwtAppArchiver extends WarArchiver {
+  private @Nullable MatchPatterns storedFiles;
+
+  /**
+   * Sets the patterns of the files to store without compressing them, or {@code null} to compress all files.
+   */
+  void setStoredFiles(@Nullable MatchPatterns storedFiles) {
+    this.storedFiles = storedFiles;
+  }
+
+  @Override
+  protected void zipFile(InputStreamSupplier in, ConcurrentJarCreator zOut, String vPath, long lastModified,
+      File fromArchive, int mode, String symlinkDestination, boolean addInParallel)
+      throws IOException, ArchiverException {
+    // The compression method of the entry is determined synchronously, before the entry is compressed in parallel.
+    if (isCompress() && storedFiles != null && storedFiles.matches(vPath, true)) {
+      setCompress(false);
+      try {
+        super.zipFile(in, zOut, vPath, lastModified, fromArchive, mode, symlinkDestination, addInParallel);
+      } finally {
+        setCompress(true);
+      }
+    } else {
+      super.zipFile(in, zOut, vPath, lastModified, fromArchive, mode, symlinkDestination, addInParallel);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Runs the GWT compiler in the current JVM, for the {@link CompilerDaemon} and the in-process execution mode.
+ * <p>
+ * This class must only depend on the JDK, as it's used in the daemon JVM.
+ */
+class GwtCompilerRunner {
+  /**
+   * Creates the class loader for the JARs of a classpath.
+   */
+  interface ClassLoaderFactory {
+    URLClassLoader newClassLoader(URL[] urls) throws Exception;
+  }
+
+  /**
+   * Class loaders for the JARs of the classpaths, reused across compilations; most recently used last.
+   */
+  private static final LinkedHashMap<String, Realm> realms = new LinkedHashMap<>(16, 0.75f, true);
+  private static final int MAX_REALMS = 3;
+
+  /**
+   * Compilations are run one at a time, as GWT reads the {@code java.class.path} system property.
+   */
+  private static final Object lock = new Object();
+
+  private static class Realm {
+    final URLClassLoader loader;
+    @Nullable String unitCacheKey;
+
+    Realm(URLClassLoader loader) {
+      this.loader = loader;
+    }
+  }
+
+  /**
+   * Runs the GWT compiler the same way {@code com.google.gwt.dev.Compiler#main} does, without exiting the JVM.
+   * <p>
+   * JARs are loaded by a class loader that's reused by later compilations with the same JARs (GWT itself,
+   * and generally the project's dependencies), while directories (the project's own classes and sources, which
+   * change between compilations) are loaded by a new class loader each time.
+   *
+   * @param classpath the classpath of the project
+   * @param args the arguments to the GWT compiler
+   * @param factory creates the class loader for the JARs, when there's none to reuse
+   * @param output where the compiler logs, or {@code null} to log to {@link System#out} as the compiler's {@code main}
+   * @return whether compilation succeeded
+   */
+  static boolean compile(List<String> classpath, List<String> args, ClassLoaderFactory factory,
+      @Nullable PrintWriter output) throws Exception {
+    synchronized (lock) {
+      return doCompile(classpath, args, factory, output);
+    }
+  }
+
+  private static boolean doCompile(List<String> classpath, List<String> args, ClassLoaderFactory factory,
+      @Nullable PrintWriter output) throws Exception {
+    List<String> jars = new ArrayList<>();
+    List<String> directories = new ArrayList<>();
+    StringBuilder key = new StringBuilder();
+    for (String entry : classpath) {
+      File file = new File(entry);
+      if (file.isDirectory()) {
+        directories.add(entry);
+      } else {
+        jars.add(entry);
+        key.append(file.getAbsolutePath()).append('@').append(file.lastModified()).append(File.pathSeparatorChar);
+      }
+    }
+    Realm realm;
+    synchronized (realms) {
+      realm = realms.get(key.toString());
+      if (realm == null) {
+        realm = new Realm(factory.newClassLoader(toURLs(jars)));
+        realms.put(key.toString(), realm);
+        for (Iterator<Realm> it = realms.values().iterator(); realms.size() > MAX_REALMS; ) {
+          Realm evicted = it.next();
+          it.remove();
+          disposeUnitCache(evicted);
+          evicted.loader.close();
+        }
+      }
+    }
+    ClassLoader gwtLoader = realm.loader;
+
+    Thread currentThread = Thread.currentThread();
+    ClassLoader oldContextClassLoader = currentThread.getContextClassLoader();
+    String oldClassPath = System.getProperty("java.class.path");
+    try (URLClassLoader projectLoader = new URLClassLoader(toURLs(directories), gwtLoader)) {
+      currentThread.setContextClassLoader(projectLoader);
+      // GWT scans the classpath from the java.class.path system property.
+      System.setProperty("java.class.path", String.join(File.pathSeparator, classpath));
+
+      final Class<?> compilerClass = Class.forName("com.google.gwt.dev.Compiler", true, gwtLoader);
+      Class<?> optionsClass = Class.forName("com.google.gwt.dev.CompilerOptions", true, gwtLoader);
+      final Object options = Class.forName("com.google.gwt.dev.CompilerOptionsImpl", true, gwtLoader)
+          .getConstructor().newInstance();
+      Constructor<?> argProcessorConstructor =
+          Class.forName("com.google.gwt.dev.Compiler$ArgProcessor", true, gwtLoader).getConstructor(optionsClass);
+      argProcessorConstructor.setAccessible(true);
+      Object argProcessor = argProcessorConstructor.newInstance(options);
+      Method processArgs = argProcessor.getClass().getMethod("processArgs", String[].class);
+      processArgs.setAccessible(true);
+      if (!(Boolean) processArgs.invoke(argProcessor, (Object) args.toArray(new String[args.size()]))) {
+        return false;
+      }
+
+      resetUnitCacheIfNeeded(realm, options);
+
+      Class<?> treeLoggerClass = Class.forName("com.google.gwt.core.ext.TreeLogger", true, gwtLoader);
+      final Method compile = compilerClass.getMethod("compile", treeLoggerClass, optionsClass);
+      if (output != null) {
+        return compileWithLogger(gwtLoader, compile, options, treeLoggerClass, output);
+      }
+      Class<?> runnerClass = Class.forName("com.google.gwt.dev.CompileTaskRunner", true, gwtLoader);
+      Class<?> taskClass = Class.forName("com.google.gwt.dev.CompileTaskRunner$CompileTask", true, gwtLoader);
+      Object task = Proxy.newProxyInstance(gwtLoader, new Class<?>[] { taskClass }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] methodArgs) throws Throwable {
+          if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, methodArgs);
+          }
+          try {
+            return compile.invoke(null, methodArgs[0], options);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        }
+      });
+      Method run = runnerClass.getMethod("runWithAppropriateLogger",
+          Class.forName("com.google.gwt.dev.CompileTaskOptions", true, gwtLoader), taskClass);
+      return (Boolean) run.invoke(null, options, task);
+    } finally {
+      if (oldClassPath == null) {
+        System.clearProperty("java.class.path");
+      } else {
+        System.setProperty("java.class.path", oldClassPath);
+      }
+      currentThread.setContextClassLoader(oldContextClassLoader);
+    }
+  }
+
+  /**
+   * Runs the compiler the same way {@code com.google.gwt.dev.CompileTaskRunner#runWithAppropriateLogger} does, but
+   * with a logger writing to the given output rather than to {@link System#out}.
+   */
+  private static boolean compileWithLogger(ClassLoader gwtLoader, Method compile, Object options,
+      Class<?> treeLoggerClass, PrintWriter output) throws Exception {
+    Class.forName("com.google.gwt.dev.BootStrapPlatform", true, gwtLoader).getMethod("applyPlatformHacks")
+        .invoke(null);
+    if (System.getProperty("java.awt.headless") == null) {
+      System.setProperty("java.awt.headless", "true");
+    }
+    Class<?> typeClass = Class.forName("com.google.gwt.core.ext.TreeLogger$Type", true, gwtLoader);
+    Object logger = Class.forName("com.google.gwt.dev.util.log.PrintWriterTreeLogger", true, gwtLoader)
+        .getConstructor(PrintWriter.class).newInstance(output);
+    logger.getClass().getMethod("setMaxDetail", typeClass)
+        .invoke(logger, options.getClass().getMethod("getLogLevel").invoke(options));
+    try {
+      return (Boolean) compile.invoke(null, logger, options);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (!cause.getClass().getName().equals("com.google.gwt.core.ext.UnableToCompleteException")) {
+        Class.forName("com.google.gwt.dev.javac.CompilationProblemReporter", true, gwtLoader)
+            .getMethod("logAndTranslateException", treeLoggerClass, Throwable.class)
+            .invoke(null, logger, cause);
+      }
+      return false;
+    } finally {
+      output.flush();
+    }
+  }
+
+  /**
+   * GWT keeps a single unit cache per class loader, initialized for the first compilation's options and directory.
+   * When those change, flush the cache to disk and throw it away so it's recreated for the new compilation.
+   */
+  private static void resetUnitCacheIfNeeded(Realm realm, Object options) throws Exception {
+    Class<?> singletonClass =
+        Class.forName("com.google.gwt.dev.javac.UnitCacheSingleton", true, realm.loader);
+    String cacheDir = System.getProperty("gwt.persistentunitcachedir");
+    if (cacheDir == null) {
+      // Same fallback as com.google.gwt.dev.Compiler#getOrCreateUnitCache
+      File warDir = (File) options.getClass().getMethod("getWarDir").invoke(options);
+      cacheDir = new File(warDir, "../").getAbsolutePath();
+    }
+    Method getRelevantOptionsHash = null;
+    for (Method method : singletonClass.getMethods()) {
+      if (method.getName().equals("getRelevantOptionsHash")) {
+        getRelevantOptionsHash = method;
+      }
+    }
+    String key = cacheDir + File.pathSeparator + Objects.requireNonNull(getRelevantOptionsHash).invoke(null, options);
+    if (!key.equals(realm.unitCacheKey)) {
+      disposeUnitCache(realm);
+      realm.unitCacheKey = key;
+    }
+  }
+
+  private static void disposeUnitCache(Realm realm) throws Exception {
+    if (realm.unitCacheKey == null) {
+      return;
+    }
+    Class<?> singletonClass =
+        Class.forName("com.google.gwt.dev.javac.UnitCacheSingleton", true, realm.loader);
+    Field instanceField = singletonClass.getDeclaredField("instance");
+    instanceField.setAccessible(true);
+    Object instance;
+    synchronized (singletonClass) {
+      instance = instanceField.get(null);
+      instanceField.set(null, null);
+    }
+    if (instance == null) {
+      return;
+    }
+    Class<?> persistentUnitCacheClass =
+        Class.forName("com.google.gwt.dev.javac.PersistentUnitCache", true, realm.loader);
+    if (persistentUnitCacheClass.isInstance(instance)) {
+      Method shutdown = persistentUnitCacheClass.getDeclaredMethod("shutdown");
+      shutdown.setAccessible(true);
+      shutdown.invoke(instance);
+    }
+    // The cache is still referenced from a shutdown hook, free the memory it uses.
+    Class<?> memoryUnitCacheClass =
+        Class.forName("com.google.gwt.dev.javac.MemoryUnitCache", true, realm.loader);
+    for (String name : new String[] { "unitMap", "unitMapByContentId" }) {
+      Field field = memoryUnitCacheClass.getDeclaredField(name);
+      field.setAccessible(true);
+      synchronized (instance) {
+        ((Map<?, ?>) field.get(instance)).clear();
+      }
+    }
+  }
+
+  private static URL[] toURLs(List<String> classpath) throws MalformedURLException {
+    URL[] urls = new URL[classpath.size()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = new File(classpath.get(i)).getAbsoluteFile().toURI().toURL();
+    }
+    return urls;
+  }
+}
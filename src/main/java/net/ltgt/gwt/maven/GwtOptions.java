@@ -11,6 +11,23 @@ public interface GwtOptions {
 
   class CommandlineBuilder {
     public static List<String> buildArgs(Log log, GwtOptions options) {
+      return buildArgs(log, options, null);
+    }
+
+    /**
+     * @param jvmArgs the arguments of the JVM running the compiler, used to compute the number of local workers
+     *     in {@code auto} mode
+     */
+    public static List<String> buildArgs(Log log, GwtOptions options, @Nullable List<String> jvmArgs) {
+      return buildArgs(options,
+          options.getLocalWorkers() == null ? null : getLocalWorkers(log, options.getLocalWorkers(), jvmArgs));
+    }
+
+    /**
+     * @param localWorkers the number of local workers, as returned by {@link #getLocalWorkers}, or {@code null} to
+     *     leave out {@code -localWorkers}
+     */
+    static List<String> buildArgs(GwtOptions options, @Nullable String localWorkers) {
       List<String> args = new ArrayList<>();
       if (options.getLogLevel() != null) {
         args.add("-logLevel");
@@ -30,9 +47,9 @@ public interface GwtOptions {
         args.add("-style");
         args.add(options.getStyle());
       }
-      if (options.getLocalWorkers() != null) {
+      if (localWorkers != null) {
         args.add("-localWorkers");
-        args.add(getLocalWorkers(options.getLocalWorkers()));
+        args.add(localWorkers);
       }
       if (options.isDraftCompile()) {
         args.add("-draftCompile");
@@ -47,10 +64,12 @@ public interface GwtOptions {
       return args;
     }
 
-    private static String getLocalWorkers(String localWorkers) {
+    static String getLocalWorkers(Log log, String localWorkers, @Nullable List<String> jvmArgs) {
       final int workers;
-      // Use the same algorithm as org.apache.maven.cli.MavenCli
-      if (localWorkers.contains("C")) {
+      if ("auto".equals(localWorkers)) {
+        workers = MachineResources.computeLocalWorkers(log, jvmArgs);
+      } else if (localWorkers.contains("C")) {
+        // Use the same algorithm as org.apache.maven.cli.MavenCli
         workers = (int) (Float.valueOf(localWorkers.replace("C", ""))
             * Runtime.getRuntime().availableProcessors());
       } else {
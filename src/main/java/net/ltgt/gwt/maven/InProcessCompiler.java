@@ -0,0 +1,139 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.classworlds.ClassWorld;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+
+/**
+ * Runs the GWT compiler inside the Maven JVM.
+ * <p>
+ * GWT is loaded in a dedicated {@link ClassRealm} isolated from Maven and the plugin, reused by later compilations
+ * with the same dependencies (see {@link GwtCompilerRunner}). The compiler logs to the Maven log through its own
+ * logger, leaving the standard streams of the JVM alone. System properties are restored after the compilation,
+ * and calls to {@link System#exit} fail the compilation rather than Maven when the JVM allows intercepting them
+ * (before Java 17).
+ */
+class InProcessCompiler {
+  private final Log log;
+
+  InProcessCompiler(Log log) {
+    this.log = log;
+  }
+
+  void execute(Iterable<String> classpath, Map<String, String> systemProperties, List<String> arguments)
+      throws MojoExecutionException {
+    List<String> cp = new ArrayList<>();
+    for (String entry : classpath) {
+      cp.add(entry);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Classpath: " + String.join(File.pathSeparator, cp));
+      log.debug("Arguments: " + String.join(" ", arguments));
+    }
+
+    boolean result;
+    // System properties are global, so only run one compilation at a time.
+    synchronized (InProcessCompiler.class) {
+      Properties oldProperties = (Properties) System.getProperties().clone();
+      LogOutputStream out = new LogOutputStream() {
+        @Override
+        protected void processLine(String line, int logLevel) {
+          log.info(line);
+        }
+      };
+      SecurityManager oldSecurityManager = System.getSecurityManager();
+      boolean interceptingExit = interceptExit(oldSecurityManager);
+      try {
+        for (Map.Entry<String, String> entry : systemProperties.entrySet()) {
+          System.setProperty(entry.getKey(), entry.getValue());
+        }
+        result = GwtCompilerRunner.compile(cp, arguments, new GwtCompilerRunner.ClassLoaderFactory() {
+          @Override
+          public URLClassLoader newClassLoader(URL[] urls) throws Exception {
+            ClassRealm realm = new ClassWorld().newRealm("gwt", ClassLoader.getSystemClassLoader().getParent());
+            for (URL url : urls) {
+              realm.addURL(url);
+            }
+            return realm;
+          }
+        }, new PrintWriter(out, true));
+      } catch (Exception e) {
+        throw new MojoExecutionException("Error running GWT compiler: " + e.getMessage(), e);
+      } finally {
+        if (interceptingExit) {
+          System.setSecurityManager(oldSecurityManager);
+        }
+        System.setProperties(oldProperties);
+        try {
+          out.close();
+        } catch (IOException e) {
+          // cannot happen, LogOutputStream doesn't throw
+        }
+      }
+    }
+    if (!result) {
+      throw new MojoExecutionException("GWT compilation failed");
+    }
+  }
+
+  /**
+   * Installs a security manager preventing {@link System#exit}, when the JVM supports it.
+   *
+   * @return whether the security manager has been installed
+   */
+  private boolean interceptExit(SecurityManager current) {
+    String version = System.getProperty("java.specification.version");
+    if (!version.startsWith("1.") && Integer.parseInt(version) >= 17) {
+      // Setting a security manager is deprecated (and prints a warning) in Java 17, and fails by default since 18.
+      log.debug("Cannot intercept System.exit calls during GWT compilation on Java " + version);
+      return false;
+    }
+    try {
+      System.setSecurityManager(new NoExitSecurityManager(current));
+    } catch (SecurityException | UnsupportedOperationException e) {
+      log.debug("Cannot intercept System.exit calls during GWT compilation: " + e.getMessage());
+      return false;
+    }
+    return true;
+  }
+
+  private static class NoExitSecurityManager extends SecurityManager {
+    private final SecurityManager delegate;
+
+    NoExitSecurityManager(SecurityManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void checkExit(int status) {
+      throw new SecurityException("System.exit(" + status + ") called during GWT compilation");
+    }
+
+    @Override
+    public void checkPermission(Permission perm) {
+      if (delegate != null) {
+        delegate.checkPermission(perm);
+      }
+    }
+
+    @Override
+    public void checkPermission(Permission perm, Object context) {
+      if (delegate != null) {
+        delegate.checkPermission(perm, context);
+      }
+    }
+  }
+}
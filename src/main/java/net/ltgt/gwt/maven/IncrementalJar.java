@@ -0,0 +1,297 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.maven.archiver.MavenArchiveConfiguration;
+import org.apache.maven.archiver.MavenArchiver;
+import org.apache.maven.archiver.PomPropertiesUtil;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.jar.JarArchiver;
+import org.codehaus.plexus.util.IOUtil;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Updates a JAR rather than rebuilding it: only the entries whose content changed since the previous build are
+ * compressed, the others are copied, still compressed, from the previous JAR.
+ * <p>
+ * An index of the entries, with a hash of their content, is kept next to the JAR. It also records the size and last
+ * modification date of the JAR, such that the JAR is entirely rebuilt if it has been modified by another tool.
+ * <p>
+ * As with the {@link JarArchiver}, the JAR is left untouched when no entry has been added or removed, and no file is
+ * newer than the JAR, unless forced; and the entries have the last modification date configured in the archiver for
+ * reproducible builds, if any.
+ */
+class IncrementalJar {
+  private static final String HEADER = "# GWT library JAR index, version 1";
+  private static final String JAR = "jar";
+  private static final String ENTRY = "entry";
+  private static final String DIRECTORY_HASH = "-";
+
+  private static class Input {
+    final @Nullable ArchiveEntry entry;
+    /** Content of generated entries; {@code null} for entries read from the archiver. */
+    final byte[] content;
+    final long lastModified;
+    /** Hash of the content, computed only when the JAR needs to be written. */
+    @Nullable String hash;
+
+    Input(@Nullable ArchiveEntry entry, byte[] content, @Nullable String hash, long lastModified) {
+      this.entry = entry;
+      this.content = content;
+      this.hash = hash;
+      this.lastModified = lastModified;
+    }
+
+    boolean isDirectory() {
+      return DIRECTORY_HASH.equals(hash);
+    }
+
+    InputStream openStream() throws IOException {
+      return content != null ? new ByteArrayInputStream(content) : entry.getInputStream();
+    }
+  }
+
+  private final File jarFile;
+  private final File indexFile;
+  private final Log log;
+
+  IncrementalJar(File jarFile, Log log) {
+    this.jarFile = jarFile;
+    this.indexFile = new File(jarFile.getPath() + ".index");
+    this.log = log;
+  }
+
+  /**
+   * Returns whether the archive configuration can be honored: a {@code manifestFile} and the {@code index} are not
+   * supported, the JAR should then be built by the {@link MavenArchiver}.
+   */
+  @SuppressWarnings("deprecation") // the index is still honored by the MavenArchiver
+  static boolean supports(MavenArchiveConfiguration archive) {
+    return archive.getManifestFile() == null && !archive.isIndex();
+  }
+
+  /**
+   * Same as {@link MavenArchiver#createArchive}, but updating the JAR.
+   *
+   * @see #supports
+   */
+  void createArchive(MavenArchiver archiver, MavenSession session, MavenProject project,
+      MavenArchiveConfiguration archive) throws Exception {
+    JarArchiver jarArchiver = archiver.getArchiver();
+    if (archive.isAddMavenDescriptor()) {
+      String descriptorPath = "META-INF/maven/" + project.getGroupId() + "/" + project.getArtifactId() + "/";
+      jarArchiver.addFile(project.getFile(), descriptorPath + "pom.xml");
+      File pomPropertiesFile = new File(project.getBuild().getDirectory(), "maven-archiver/pom.properties");
+      new PomPropertiesUtil().createPomProperties(
+          project, jarArchiver, archive.getPomPropertiesFile(), pomPropertiesFile, archive.isForced());
+    }
+    write(archiver.getManifest(session, project, archive), jarArchiver.getResources(), archive.isCompress(),
+        archive.isForced(), jarArchiver.getLastModifiedTime());
+  }
+
+  /**
+   * Writes the JAR with the given manifest and entries, keeping the first entry when several have the same name.
+   *
+   * @param compress whether to compress new and changed entries
+   * @param force whether to rebuild the JAR entirely, ignoring the previous one
+   * @param lastModifiedTime the last modification date of all entries, or {@code null} to use the ones of the files
+   */
+  void write(Manifest manifest, ResourceIterator resources, boolean compress, boolean force,
+      @Nullable FileTime lastModifiedTime) throws IOException {
+    long now = lastModifiedTime == null ? System.currentTimeMillis() : lastModifiedTime.toMillis();
+    Map<String, Input> inputs = new LinkedHashMap<>();
+    inputs.put("META-INF/", new Input(null, null, DIRECTORY_HASH, now));
+    ByteArrayOutputStream manifestContent = new ByteArrayOutputStream();
+    manifest.write(manifestContent);
+    byte[] manifestBytes = manifestContent.toByteArray();
+    inputs.put(JarFile.MANIFEST_NAME,
+        new Input(null, manifestBytes, BuildFingerprint.hash(new ByteArrayInputStream(manifestBytes)), now));
+    boolean newerFiles = false;
+    while (resources.hasNext()) {
+      ArchiveEntry entry = resources.next();
+      String name = entry.getName().replace('\\', '/');
+      if (name.startsWith("/")) {
+        name = name.substring(1);
+      }
+      if (entry.getType() == ArchiveEntry.DIRECTORY && !name.endsWith("/")) {
+        name += "/";
+      }
+      if (name.isEmpty() || name.equalsIgnoreCase(JarFile.MANIFEST_NAME) || inputs.containsKey(name)) {
+        continue;
+      }
+      long lastModified = entry.getResource().getLastModified();
+      newerFiles |= lastModified > jarFile.lastModified();
+      if (lastModifiedTime != null) {
+        lastModified = lastModifiedTime.toMillis();
+      }
+      // Parent directories come first, like with the JarArchiver
+      for (int i = name.indexOf('/'); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+        inputs.putIfAbsent(name.substring(0, i + 1), new Input(null, null, DIRECTORY_HASH, lastModified));
+      }
+      inputs.put(name, new Input(entry, null,
+          entry.getType() == ArchiveEntry.DIRECTORY ? DIRECTORY_HASH : null, lastModified));
+    }
+
+    Map<String, String> previous = force ? null : readIndex();
+    if (previous != null && previous.keySet().equals(inputs.keySet()) && !newerFiles
+        && inputs.get(JarFile.MANIFEST_NAME).hash.equals(previous.get(JarFile.MANIFEST_NAME))) {
+      log.info(jarFile + " is up to date; skipping.");
+      return;
+    }
+
+    for (Input input : inputs.values()) {
+      if (input.hash == null) {
+        try (InputStream in = input.openStream()) {
+          input.hash = BuildFingerprint.hash(in);
+        }
+      }
+    }
+    if (previous != null && previous.size() == inputs.size()) {
+      boolean uptodate = true;
+      for (Map.Entry<String, Input> input : inputs.entrySet()) {
+        if (!input.getValue().hash.equals(previous.get(input.getKey()))) {
+          uptodate = false;
+          break;
+        }
+      }
+      if (uptodate) {
+        log.info(jarFile + " is up to date; skipping.");
+        return;
+      }
+    }
+
+    File tmpFile = new File(jarFile.getPath() + ".tmp");
+    int copied = 0, changed = 0, added = 0;
+    try {
+      try (ZipFile previousJar = previous == null ? null : ZipFile.builder().setFile(jarFile).get();
+          ZipArchiveOutputStream out = new ZipArchiveOutputStream(tmpFile)) {
+        for (Map.Entry<String, Input> e : inputs.entrySet()) {
+          String name = e.getKey();
+          Input input = e.getValue();
+          String previousHash = previous == null ? null : previous.get(name);
+          ZipArchiveEntry previousEntry = previousJar == null ? null : previousJar.getEntry(name);
+          if (previousEntry != null && input.hash.equals(previousHash)) {
+            try (InputStream raw = previousJar.getRawInputStream(previousEntry)) {
+              out.addRawArchiveEntry(previousEntry, raw);
+            }
+            copied++;
+            continue;
+          }
+          if (previousHash == null) {
+            added++;
+          } else {
+            changed++;
+          }
+          ZipArchiveEntry entry = new ZipArchiveEntry(name);
+          entry.setTime(input.lastModified);
+          if (input.entry != null) {
+            entry.setUnixMode(input.entry.getMode());
+          }
+          if (input.isDirectory()) {
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(0);
+            entry.setCrc(0);
+            out.putArchiveEntry(entry);
+          } else {
+            entry.setMethod(compress ? ZipEntry.DEFLATED : ZipEntry.STORED);
+            out.putArchiveEntry(entry);
+            try (InputStream in = input.openStream()) {
+              IOUtil.copy(in, out);
+            }
+          }
+          out.closeArchiveEntry();
+        }
+      }
+      try {
+        Files.move(tmpFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpFile.toPath(), jarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      tmpFile.delete();
+    }
+    writeIndex(inputs);
+
+    if (previous == null) {
+      log.info("Building jar: " + jarFile);
+    } else {
+      int removed = 0;
+      for (String name : previous.keySet()) {
+        if (!inputs.containsKey(name)) {
+          removed++;
+        }
+      }
+      log.info("Updating jar: " + jarFile + " (" + added + " added, " + changed + " changed, " + removed
+          + " removed, " + copied + " unchanged)");
+    }
+  }
+
+  /**
+   * Returns the hashes of the entries of the previous JAR, or {@code null} if unknown or if the JAR has been modified
+   * since.
+   */
+  private @Nullable Map<String, String> readIndex() throws IOException {
+    if (!jarFile.isFile()) {
+      return null;
+    }
+    Map<String, String> hashes = new LinkedHashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return null;
+      }
+      String[] jar = String.valueOf(reader.readLine()).split("\t");
+      if (jar.length != 3 || !JAR.equals(jar[0])
+          || Long.parseLong(jar[1]) != jarFile.length()
+          || Long.parseLong(jar[2]) != jarFile.lastModified()) {
+        log.debug("JAR has been modified since last build, rebuilding it entirely");
+        return null;
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length != 3 || !ENTRY.equals(parts[0])) {
+          return null;
+        }
+        hashes.put(parts[2], parts[1]);
+      }
+    } catch (NoSuchFileException | NumberFormatException e) {
+      return null;
+    }
+    return hashes;
+  }
+
+  private void writeIndex(Map<String, Input> inputs) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      writer.write(JAR + '\t' + jarFile.length() + '\t' + jarFile.lastModified() + '\n');
+      for (Map.Entry<String, Input> input : inputs.entrySet()) {
+        writer.write(ENTRY + '\t' + input.getValue().hash + '\t' + input.getKey() + '\n');
+      }
+    }
+  }
+}
@@ -83,6 +83,20 @@ public class JarMojo extends AbstractMojo {
   @Parameter(property = "maven.jar.forceCreation", defaultValue = "false")
   private boolean forceCreation;
 
+  /**
+   * Update the JAR incrementally: only compress the entries that have been added or changed since the previous build,
+   * and copy the others as-is from the previous JAR. An index of the entries with a hash of their content is kept next
+   * to the JAR, as {@code <finalName>.jar.index}.
+   * <p>
+   * As when building the JAR as usual, the JAR is left untouched when no file is newer than the JAR, unless
+   * {@link #forceCreation} is set, which rebuilds it entirely.
+   * <p>
+   * This is not supported with a {@code manifestFile} or an {@code index} in the archive configuration; the JAR is
+   * then built as usual.
+   */
+  @Parameter(property = "gwt.jar.incremental", defaultValue = "false")
+  private boolean incremental;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     File jarFile = new File(outputDirectory, finalName + ".jar");
@@ -108,7 +122,14 @@ public class JarMojo extends AbstractMojo {
         jarArchiver.addFileSet(fileSet(classesDirectory).includeEmptyDirs(jarArchiver.getIncludeEmptyDirs()));
       }
 
-      archiver.createArchive(session, project, archive);
+      if (incremental && IncrementalJar.supports(archive)) {
+        new IncrementalJar(jarFile, getLog()).createArchive(archiver, session, project, archive);
+      } else {
+        if (incremental) {
+          getLog().warn("Incremental JAR is not supported with a manifestFile or an index; building the JAR as usual.");
+        }
+        archiver.createArchive(session, project, archive);
+      }
     } catch (Exception e) {
       throw new MojoExecutionException("Error packaging GWT library", e);
     }
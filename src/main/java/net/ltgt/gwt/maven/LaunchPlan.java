@@ -0,0 +1,98 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The modules, source roots and classpath of a DevMode or CodeServer launch, persisted between launches.
+ * <p>
+ * The plan is recorded with a key, computed from the configuration the plan has been resolved from and the POMs,
+ * module descriptors and dependencies of the reactor projects, and is only reused with the same key, and as long as
+ * the JARs of the classpath still exist.
+ */
+class LaunchPlan {
+  private static final String HEADER = "# GWT launch plan, version 1";
+  private static final String KEY = "key";
+  private static final String MODULE = "module";
+  private static final String SOURCE = "source";
+  private static final String CLASSPATH = "classpath";
+
+  final String key;
+  final List<String> modules;
+  final LinkedHashSet<String> sources;
+  final LinkedHashSet<String> classpath;
+
+  LaunchPlan(String key, List<String> modules, LinkedHashSet<String> sources, LinkedHashSet<String> classpath) {
+    this.key = key;
+    this.modules = modules;
+    this.sources = sources;
+    this.classpath = classpath;
+  }
+
+  /**
+   * Reads a plan previously written by {@link #write(File)}.
+   *
+   * @return the plan, or {@code null} if the file doesn't exist, cannot be parsed, has been written with another key,
+   *         or if a JAR of the classpath no longer exists.
+   */
+  static @Nullable LaunchPlan read(File file, String key) throws IOException {
+    List<String> modules = new ArrayList<>();
+    LinkedHashSet<String> sources = new LinkedHashSet<>();
+    LinkedHashSet<String> classpath = new LinkedHashSet<>();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine()) || !(KEY + '\t' + key).equals(reader.readLine())) {
+        return null;
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 2);
+        if (parts.length != 2) {
+          return null;
+        }
+        if (MODULE.equals(parts[0])) {
+          modules.add(parts[1]);
+        } else if (SOURCE.equals(parts[0])) {
+          sources.add(parts[1]);
+        } else if (CLASSPATH.equals(parts[0])) {
+          if (parts[1].endsWith(".jar") && !new File(parts[1]).isFile()) {
+            return null;
+          }
+          classpath.add(parts[1]);
+        } else {
+          return null;
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      return null;
+    }
+    return new LaunchPlan(key, modules, sources, classpath);
+  }
+
+  void write(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      writer.write(KEY + '\t' + key + '\n');
+      for (String module : modules) {
+        writer.write(MODULE + '\t' + module + '\n');
+      }
+      for (String source : sources) {
+        writer.write(SOURCE + '\t' + source + '\n');
+      }
+      for (String entry : classpath) {
+        writer.write(CLASSPATH + '\t' + entry + '\n');
+      }
+    }
+  }
+}
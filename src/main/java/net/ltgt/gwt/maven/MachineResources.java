@@ -0,0 +1,330 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resources of the machine, used to size pools of forked JVMs and the number of GWT local workers.
+ * <p>
+ * Limits of the container the build runs in (Linux cgroups v1 or v2) are taken into account.
+ */
+class MachineResources {
+  /**
+   * Estimation of the memory used by a JVM in addition to its heap (metaspace, code cache, thread stacks, etc.)
+   */
+  static final long JVM_OVERHEAD = 256L * 1024 * 1024;
+
+  /**
+   * Estimation of the heap used by a GWT local worker compiling a permutation.
+   */
+  static final long PERMUTATION_MEMORY = 512L * 1024 * 1024;
+
+  private static final long MB = 1024 * 1024;
+
+  private static final AtomicInteger runningCompilations = new AtomicInteger();
+
+  private MachineResources() {}
+
+  /**
+   * Records that a GWT compilation starts in this build, to share resources between modules built in parallel.
+   *
+   * @see #compilationFinished()
+   */
+  static void compilationStarted() {
+    runningCompilations.incrementAndGet();
+  }
+
+  static void compilationFinished() {
+    runningCompilations.decrementAndGet();
+  }
+
+  /**
+   * Returns the number of GWT compilations running in this build, at least {@code 1}.
+   */
+  static int getRunningCompilations() {
+    return Math.max(1, runningCompilations.get());
+  }
+
+  /**
+   * Returns the number of processors available, taking the container CPU quota into account.
+   */
+  static int getAvailableProcessors() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    // Older JVMs (before Java 8u191) don't take the CPU quota into account.
+    long quota;
+    long period;
+    String cpuMax = readCgroupFile("cpu.max", "cpu", null);
+    if (cpuMax != null) {
+      String[] parts = cpuMax.split("\\s+");
+      quota = parts.length == 2 ? parseLong(parts[0]) : -1;
+      period = parts.length == 2 ? parseLong(parts[1]) : -1;
+    } else {
+      quota = parseLong(readCgroupFile(null, "cpu", "cpu.cfs_quota_us"));
+      period = parseLong(readCgroupFile(null, "cpu", "cpu.cfs_period_us"));
+    }
+    if (quota > 0 && period > 0) {
+      processors = (int) Math.max(1, Math.min(processors, (quota + period - 1) / period));
+    }
+    return processors;
+  }
+
+  /**
+   * Returns the total physical memory of the machine, or {@code -1} if it cannot be determined.
+   */
+  static long getPhysicalMemory() {
+    try {
+      Object value = ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(new ObjectName("java.lang:type=OperatingSystem"), "TotalPhysicalMemorySize");
+      return value instanceof Long ? (Long) value : -1;
+    } catch (JMException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the memory limit of the container, or {@code -1} if there's none or it cannot be determined.
+   */
+  static long getContainerMemoryLimit() {
+    long limit = parseLong(readCgroupFile("memory.max", "memory", "memory.limit_in_bytes"));
+    // cgroups v1 uses a huge number (page-aligned Long.MAX_VALUE) when there's no limit.
+    if (limit <= 0 || limit >= Long.MAX_VALUE / 2) {
+      return -1;
+    }
+    return limit;
+  }
+
+  /**
+   * Returns the memory usable by processes: the physical memory, bounded by the container limit.
+   *
+   * @return the memory, or {@code -1} if it cannot be determined
+   */
+  static long getMemoryLimit() {
+    long physicalMemory = getPhysicalMemory();
+    long containerLimit = getContainerMemoryLimit();
+    if (containerLimit > 0 && (physicalMemory <= 0 || containerLimit < physicalMemory)) {
+      return containerLimit;
+    }
+    return physicalMemory;
+  }
+
+  /**
+   * Returns the memory currently available without swapping (including reclaimable caches), bounded by the
+   * remaining memory of the container.
+   *
+   * @return the memory, or {@code -1} if it cannot be determined
+   */
+  static long getAvailableMemory() {
+    long available = -1;
+    try {
+      for (String line : Files.readAllLines(new File("/proc/meminfo").toPath(), StandardCharsets.US_ASCII)) {
+        if (line.startsWith("MemAvailable:")) {
+          // Value is in kB
+          available = parseLong(line.substring("MemAvailable:".length()).replace("kB", "").trim()) * 1024;
+          break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // Not Linux
+    }
+    if (available <= 0) {
+      try {
+        Object value = ManagementFactory.getPlatformMBeanServer()
+            .getAttribute(new ObjectName("java.lang:type=OperatingSystem"), "FreePhysicalMemorySize");
+        available = value instanceof Long ? (Long) value : -1;
+      } catch (JMException | RuntimeException e) {
+        available = -1;
+      }
+    }
+    long containerLimit = getContainerMemoryLimit();
+    if (containerLimit > 0) {
+      long usage = parseLong(readCgroupFile("memory.current", "memory", "memory.usage_in_bytes"));
+      if (usage >= 0 && (available <= 0 || containerLimit - usage < available)) {
+        available = Math.max(0, containerLimit - usage);
+      }
+    }
+    return available;
+  }
+
+  /**
+   * Returns the maximum heap size set by the last {@code -Xmx} argument, or {@code null} if there's none.
+   */
+  static @Nullable Long getMaxHeapSize(@Nullable List<String> jvmArgs) {
+    if (jvmArgs == null) {
+      return null;
+    }
+    Long maxHeapSize = null;
+    for (String arg : jvmArgs) {
+      if (arg.startsWith("-Xmx")) {
+        Long size = parseSize(arg.substring("-Xmx".length()));
+        if (size != null) {
+          maxHeapSize = size;
+        }
+      }
+    }
+    return maxHeapSize;
+  }
+
+  /**
+   * Estimates the memory a forked JVM will use, defaulting to the JVM's default maximum heap size (a quarter of the
+   * physical or container memory) when no {@code -Xmx} is given.
+   *
+   * @return the estimated memory, or {@code -1} if it cannot be determined
+   */
+  static long estimateJvmMemory(@Nullable List<String> jvmArgs, long physicalMemory) {
+    Long maxHeapSize = getMaxHeapSize(jvmArgs);
+    if (maxHeapSize == null) {
+      if (physicalMemory <= 0) {
+        return -1;
+      }
+      maxHeapSize = physicalMemory / 4;
+    }
+    return maxHeapSize + JVM_OVERHEAD;
+  }
+
+  /**
+   * Returns how many JVMs can be run concurrently given the number of CPU cores and the available memory.
+   */
+  static int getMaxConcurrentJvms(@Nullable List<String> jvmArgs) {
+    int processors = getAvailableProcessors();
+    long memoryLimit = getMemoryLimit();
+    long jvmMemory = estimateJvmMemory(jvmArgs, memoryLimit);
+    if (memoryLimit <= 0 || jvmMemory <= 0) {
+      return processors;
+    }
+    return (int) Math.max(1, Math.min(processors, memoryLimit / jvmMemory));
+  }
+
+  /**
+   * Computes the number of GWT local workers for a compiler JVM started with the given arguments.
+   * <p>
+   * Local workers are threads sharing the heap of the compiler JVM, so their number is bounded by the CPU cores
+   * shared with the other GWT compilations running in the build, and by the heap of the JVM, itself bounded by the
+   * memory available without swapping shared with those other compilations. The reasoning is logged.
+   */
+  static int computeLocalWorkers(Log log, @Nullable List<String> jvmArgs) {
+    int processors = getAvailableProcessors();
+    int compilations = getRunningCompilations();
+    int cpuWorkers = Math.max(1, processors / compilations);
+
+    long memoryLimit = getMemoryLimit();
+    long availableMemory = getAvailableMemory();
+    Long maxHeapSize = getMaxHeapSize(jvmArgs);
+    long heap = maxHeapSize != null ? maxHeapSize : memoryLimit > 0 ? memoryLimit / 4 : -1;
+    if (heap <= 0) {
+      log.info("Using " + cpuWorkers + " local workers: " + processors + " CPU cores shared by " + compilations
+          + " GWT compilation(s), memory could not be determined");
+      return cpuWorkers;
+    }
+    StringBuilder reason = new StringBuilder();
+    reason.append(heap / MB).append(" MB of heap (").append(maxHeapSize != null ? "-Xmx" : "JVM default").append(")");
+    if (availableMemory > 0) {
+      // The other compilations will compete for the available memory, so don't count on more than our share.
+      long share = availableMemory / compilations - JVM_OVERHEAD;
+      if (share < heap) {
+        heap = Math.max(PERMUTATION_MEMORY, share);
+        reason.append(" bounded to ").append(heap / MB).append(" MB by ").append(availableMemory / MB)
+            .append(" MB of available memory");
+      }
+    }
+    int memoryWorkers = (int) Math.max(1, heap / PERMUTATION_MEMORY);
+    int workers = Math.min(cpuWorkers, memoryWorkers);
+    log.info("Using " + workers + " local workers: " + processors + " CPU cores shared by " + compilations
+        + " GWT compilation(s) allow " + cpuWorkers + ", " + reason + " allow " + memoryWorkers + " at about "
+        + PERMUTATION_MEMORY / MB + " MB each");
+    return workers;
+  }
+
+  /**
+   * Reads the first line of a file of the cgroup of the current process.
+   *
+   * @param v2Name the name of the file in cgroups v2, or {@code null} to only look in cgroups v1
+   * @param v1Controller the name of the controller in cgroups v1
+   * @param v1Name the name of the file in cgroups v1, or {@code null} to only look in cgroups v2
+   * @return the first line of the file, or {@code null} if it doesn't exist
+   */
+  private static @Nullable String readCgroupFile(@Nullable String v2Name, String v1Controller, @Nullable String v1Name) {
+    File root = new File("/sys/fs/cgroup");
+    boolean v2 = new File(root, "cgroup.controllers").isFile();
+    if (v2 ? v2Name == null : v1Name == null) {
+      return null;
+    }
+    String path = "/";
+    try {
+      for (String line : Files.readAllLines(new File("/proc/self/cgroup").toPath(), StandardCharsets.UTF_8)) {
+        // hierarchy-ID:controller-list:cgroup-path
+        String[] parts = line.split(":", 3);
+        if (parts.length == 3
+            && (v2 ? parts[1].isEmpty() : ("," + parts[1] + ",").contains("," + v1Controller + ","))) {
+          path = parts[2];
+          break;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+    File dir = v2 ? root : new File(root, v1Controller);
+    // The cgroup path is relative to the root of the cgroup namespace, which is generally mounted as-is in containers.
+    File file = new File(dir, path + "/" + (v2 ? v2Name : v1Name));
+    if (!file.isFile()) {
+      file = new File(dir, v2 ? v2Name : v1Name);
+    }
+    try {
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+      return lines.isEmpty() ? null : lines.get(0).trim();
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static long parseLong(@Nullable String value) {
+    if (value == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      // e.g. "max"
+      return -1;
+    }
+  }
+
+  private static @Nullable Long parseSize(String size) {
+    if (size.isEmpty()) {
+      return null;
+    }
+    long multiplier = 1;
+    switch (size.toLowerCase(Locale.ROOT).charAt(size.length() - 1)) {
+      case 'k':
+        multiplier = 1024;
+        break;
+      case 'm':
+        multiplier = 1024 * 1024;
+        break;
+      case 'g':
+        multiplier = 1024 * 1024 * 1024;
+        break;
+      case 't':
+        multiplier = 1024L * 1024 * 1024 * 1024;
+        break;
+      default:
+        break;
+    }
+    try {
+      return Long.parseLong(multiplier == 1 ? size : size.substring(0, size.length() - 1)) * multiplier;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
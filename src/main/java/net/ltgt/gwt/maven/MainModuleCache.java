@@ -0,0 +1,130 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Main modules ({@code META-INF/gwt/mainModule}) of the dependencies of a project, persisted between builds.
+ * <p>
+ * Each JAR is recorded with its coordinates, path, size and last modification date, such that it's only opened
+ * again when it changes.
+ */
+class MainModuleCache {
+  private static final String HEADER = "# GWT main modules of dependencies, version 1";
+  private static final String ARTIFACT = "artifact";
+
+  static class Entry {
+    final String path;
+    final long size;
+    final long lastModified;
+    final @Nullable String mainModule;
+
+    Entry(String path, long size, long lastModified, @Nullable String mainModule) {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.mainModule = mainModule;
+    }
+  }
+
+  private final Map<String, Entry> artifacts = new TreeMap<>();
+  private boolean changed;
+
+  /**
+   * Returns whether the artifact can be cached: only JARs are, as directories could change without their last
+   * modification date being updated.
+   */
+  static boolean isCacheable(Artifact artifact) {
+    return artifact.getFile() != null && artifact.getFile().isFile();
+  }
+
+  /**
+   * Returns the recorded entry for the artifact if its file hasn't changed since, or {@code null}.
+   */
+  @Nullable Entry get(Artifact artifact) {
+    Entry entry = artifacts.get(artifact.getId());
+    File file = artifact.getFile();
+    if (entry == null
+        || !entry.path.equals(file.getAbsolutePath())
+        || entry.size != file.length()
+        || entry.lastModified != file.lastModified()) {
+      return null;
+    }
+    return entry;
+  }
+
+  void put(Artifact artifact, @Nullable String mainModule) {
+    File file = artifact.getFile();
+    artifacts.put(artifact.getId(), new Entry(file.getAbsolutePath(), file.length(), file.lastModified(), mainModule));
+    changed = true;
+  }
+
+  /**
+   * Forgets the artifacts that are no longer dependencies.
+   */
+  void retainAll(Collection<Artifact> dependencies) {
+    Set<String> ids = new HashSet<>();
+    for (Artifact artifact : dependencies) {
+      ids.add(artifact.getId());
+    }
+    changed |= artifacts.keySet().retainAll(ids);
+  }
+
+  /**
+   * Returns whether entries were added or removed since the cache was read.
+   */
+  boolean isChanged() {
+    return changed;
+  }
+
+  /**
+   * Reads the cache from the given file, returning an empty cache if the file doesn't exist or is invalid.
+   */
+  static MainModuleCache read(File file) throws IOException {
+    MainModuleCache cache = new MainModuleCache();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return new MainModuleCache();
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 6);
+        if (ARTIFACT.equals(parts[0]) && parts.length == 6) {
+          cache.artifacts.put(parts[1], new Entry(parts[5], Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+              parts[4].isEmpty() ? null : parts[4]));
+        } else {
+          return new MainModuleCache();
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException | NumberFormatException e) {
+      return new MainModuleCache();
+    }
+    return cache;
+  }
+
+  void write(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Map.Entry<String, Entry> entry : artifacts.entrySet()) {
+        Entry e = entry.getValue();
+        writer.write(ARTIFACT + '\t' + entry.getKey() + '\t' + e.size + '\t' + e.lastModified + '\t'
+            + (e.mainModule == null ? "" : e.mainModule) + '\t' + e.path + '\n');
+      }
+    }
+  }
+}
@@ -0,0 +1,324 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.codehaus.plexus.util.FileUtils;
+import org.jspecify.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Groups {@code GWTTestCase} classes by GWT module into generated JUnit suites.
+ * <p>
+ * Surefire hands test classes to forks one at a time, so tests for the same module can be run by several forks,
+ * each compiling the module. Each generated suite runs all the tests of one or several modules, one module after the
+ * other, so each module is only compiled by the fork that runs the suite.
+ * <p>
+ * The module of a test class is read from its bytecode: the constant returned by its {@code getModuleName()} method,
+ * or that of its superclass if it's also in the test classes directory. Classes whose module can't be determined
+ * this way are left alone.
+ * <p>
+ * The suites are written to their own directory, rather than the test classes directory. That directory is added to
+ * the project as a test {@link #getArtifact() dependency} while the tests run, such that Surefire scans it for tests
+ * and puts it in the classpath after the test and main classes. The suites are deleted once the tests have run.
+ */
+class ModuleSuites {
+  static final String PACKAGE = "net/ltgt/gwt/maven/modules";
+  /** The {@code groupId:artifactId} of the {@link #getArtifact() artifact} of the suites. */
+  static final String ARTIFACT_KEY = "net.ltgt.gwt.maven:gwt-test-suites";
+
+  private static final String TEST_SUITE = "junit/framework/TestSuite";
+
+  private final File testClassesDirectory;
+  private final File directory;
+  /** Modules of the superclasses, with {@code null} values for unknown modules. */
+  private final Map<String, String> moduleNames = new TreeMap<>();
+  private final Map<String, String> testModules = new TreeMap<>();
+  private final List<String> suiteTestClasses = new ArrayList<>();
+
+  /**
+   * @param testClassesDirectory the directory where to read the test classes from
+   * @param directory the directory where to write the suites, generally
+   *     {@code ${project.build.directory}/gwt-tests/suites}
+   */
+  ModuleSuites(File testClassesDirectory, File directory) {
+    this.testClassesDirectory = testClassesDirectory;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the directory of the generated suites.
+   */
+  File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns the test classes grouped by module, ignoring the classes whose module can't be determined.
+   */
+  Map<String, List<String>> group(List<String> testClasses) throws IOException {
+    Map<String, List<String>> groups = new TreeMap<>();
+    for (String testClass : testClasses) {
+      String moduleName = getModuleName(testClass.replace('.', '/'), true);
+      if (moduleName != null) {
+        groups.computeIfAbsent(moduleName, k -> new ArrayList<>()).add(testClass);
+        testModules.put(testClass, moduleName);
+      }
+    }
+    for (List<String> classes : groups.values()) {
+      classes.sort(null);
+    }
+    return groups;
+  }
+
+  /**
+   * Returns the module of each test class grouped by {@link #group}.
+   */
+  Map<String, String> getTestModules() {
+    return testModules;
+  }
+
+  /**
+   * Returns the test classes run by the {@link #write written} suites.
+   */
+  List<String> getSuiteTestClasses() {
+    return suiteTestClasses;
+  }
+
+  /**
+   * Returns an artifact for the directory of the suites, to add to the test dependencies of the project.
+   */
+  Artifact getArtifact() {
+    DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+    handler.setAddedToClasspath(true);
+    String[] coordinates = ARTIFACT_KEY.split(":");
+    Artifact artifact = new DefaultArtifact(coordinates[0], coordinates[1], "1.0", Artifact.SCOPE_TEST, "jar", null,
+        handler);
+    artifact.setFile(directory);
+    artifact.setResolved(true);
+    return artifact;
+  }
+
+  /**
+   * Writes the given suites, named after their keys, and returns their class names.
+   */
+  List<String> write(Map<String, List<String>> suites) throws IOException {
+    delete();
+    File dir = new File(directory, PACKAGE);
+    Files.createDirectories(dir.toPath());
+    Map<String, String> names = new LinkedHashMap<>();
+    for (String suiteName : suites.keySet()) {
+      String name = suiteName.replaceAll("[^A-Za-z0-9_]", "_");
+      for (int i = 2; names.containsValue(name); i++) {
+        name = suiteName.replaceAll("[^A-Za-z0-9_]", "_") + "_" + i;
+      }
+      names.put(suiteName, name);
+    }
+    List<String> classNames = new ArrayList<>();
+    for (Map.Entry<String, String> entry : names.entrySet()) {
+      String className = PACKAGE + "/" + entry.getValue();
+      Files.write(new File(dir, entry.getValue() + ".class").toPath(),
+          generateSuite(className, entry.getKey(), suites.get(entry.getKey())));
+      classNames.add(className.replace('/', '.'));
+      suiteTestClasses.addAll(suites.get(entry.getKey()));
+    }
+    return classNames;
+  }
+
+  /**
+   * Deletes the generated suites.
+   */
+  void delete() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private @Nullable String getModuleName(String internalName, boolean concrete) throws IOException {
+    if (!concrete && moduleNames.containsKey(internalName)) {
+      return moduleNames.get(internalName);
+    }
+    String moduleName;
+    try (InputStream in = Files.newInputStream(new File(testClassesDirectory, internalName + ".class").toPath())) {
+      moduleName = readModuleName(new ClassReader(in), concrete);
+    } catch (NoSuchFileException e) {
+      moduleName = null;
+    } catch (IllegalArgumentException e) {
+      // class file version not supported by ASM
+      moduleName = null;
+    }
+    if (!concrete) {
+      moduleNames.put(internalName, moduleName);
+    }
+    return moduleName;
+  }
+
+  /**
+   * Returns the constant returned by the {@code getModuleName()} method of the class, or of its superclass if it
+   * doesn't have one.
+   */
+  private @Nullable String readModuleName(ClassReader reader, boolean concrete) throws IOException {
+    int access = reader.getAccess();
+    if (concrete && ((access & Opcodes.ACC_ABSTRACT) != 0 || (access & Opcodes.ACC_PUBLIC) == 0)) {
+      return null;
+    }
+    ModuleNameReader visitor = new ModuleNameReader();
+    reader.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    if (visitor.hasMethod) {
+      return visitor.moduleName;
+    }
+    return reader.getSuperName() == null ? null : getModuleName(reader.getSuperName(), false);
+  }
+
+  /**
+   * Reads the {@code getModuleName()} method of a class; only {@code return <constant>;} is supported.
+   */
+  private static class ModuleNameReader extends ClassVisitor {
+    boolean hasMethod;
+    @Nullable String moduleName;
+
+    ModuleNameReader() {
+      super(Opcodes.ASM9);
+    }
+
+    @Override
+    public @Nullable MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+        String[] exceptions) {
+      if (!"getModuleName".equals(name) || !"()Ljava/lang/String;".equals(descriptor)) {
+        return null;
+      }
+      hasMethod = true;
+      return new MethodVisitor(Opcodes.ASM9) {
+        private int instructions;
+        private @Nullable String constant;
+
+        @Override
+        public void visitLdcInsn(Object value) {
+          instructions++;
+          constant = instructions == 1 && value instanceof String ? (String) value : null;
+          moduleName = null;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+          instructions++;
+          moduleName = instructions == 2 && opcode == Opcodes.ARETURN ? constant : null;
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+          unsupported();
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+          unsupported();
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+          unsupported();
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+          unsupported();
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+          unsupported();
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+            Object... bootstrapMethodArguments) {
+          unsupported();
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+          unsupported();
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+          unsupported();
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+          unsupported();
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+          unsupported();
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+          unsupported();
+        }
+
+        private void unsupported() {
+          instructions++;
+          moduleName = null;
+        }
+      };
+    }
+  }
+
+  /**
+   * Generates the class file of a JUnit 3 suite, equivalent to:
+   * <pre><code>
+   * public final class Suite {
+   *   public static Test suite() {
+   *     TestSuite suite = new TestSuite(suiteName);
+   *     suite.addTestSuite(TestClass.class);
+   *     // …
+   *     return suite;
+   *   }
+   * }
+   * </code></pre>
+   */
+  static byte[] generateSuite(String className, String suiteName, List<String> testClasses) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    // Java 5, the first version with class literals in ldc, and without stack map frames
+    writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null,
+        "java/lang/Object", null);
+    MethodVisitor suite = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "suite",
+        "()Ljunit/framework/Test;", null, null);
+    suite.visitCode();
+    suite.visitTypeInsn(Opcodes.NEW, TEST_SUITE);
+    suite.visitInsn(Opcodes.DUP);
+    suite.visitLdcInsn(suiteName);
+    suite.visitMethodInsn(Opcodes.INVOKESPECIAL, TEST_SUITE, "<init>", "(Ljava/lang/String;)V", false);
+    for (String testClass : testClasses) {
+      suite.visitInsn(Opcodes.DUP);
+      suite.visitLdcInsn(Type.getObjectType(testClass.replace('.', '/')));
+      suite.visitMethodInsn(Opcodes.INVOKEVIRTUAL, TEST_SUITE, "addTestSuite", "(Ljava/lang/Class;)V", false);
+    }
+    suite.visitInsn(Opcodes.ARETURN);
+    suite.visitMaxs(0, 0);
+    suite.visitEnd();
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+}
@@ -0,0 +1,104 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryFlag;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Creates files and directories only accessible to their owner: with {@code 0700} and {@code 0600} permissions on
+ * POSIX file systems, or with an ACL only granting access to their owner (e.g. on Windows).
+ * <p>
+ * This is used for the state files of the daemons, which hold the token clients authenticate with, in a shared
+ * temporary directory. This class must only depend on the JDK, as it's used by the daemons.
+ */
+class OwnerOnlyFiles {
+  private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+  private static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+  private OwnerOnlyFiles() {}
+
+  /**
+   * Creates the directory if it doesn't exist, or checks that it's owned by the current user, and restricts its
+   * permissions.
+   *
+   * @throws IOException if the directory exists but isn't a directory (or is a symbolic link), or is owned by another
+   *     user
+   */
+  static void createDirectory(File directory) throws IOException {
+    Path path = directory.toPath();
+    try {
+      if (isPosix(path.getParent())) {
+        Files.createDirectory(path, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+      } else {
+        Files.createDirectory(path);
+      }
+    } catch (FileAlreadyExistsException e) {
+      if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+        throw new IOException(directory + " is not a directory");
+      }
+      UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+      UserPrincipal currentUser = path.getFileSystem().getUserPrincipalLookupService()
+          .lookupPrincipalByName(System.getProperty("user.name"));
+      if (!owner.equals(currentUser)) {
+        throw new IOException(directory + " is owned by " + owner.getName() + ", not by " + currentUser.getName());
+      }
+    }
+    restrict(path, true);
+  }
+
+  /**
+   * Creates the file if it doesn't exist, and restricts its permissions.
+   */
+  static void createFile(File file) throws IOException {
+    Path path = file.toPath();
+    try {
+      if (isPosix(path.getParent())) {
+        Files.createFile(path, PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS));
+      } else {
+        Files.createFile(path);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // restricted below
+    }
+    restrict(path, false);
+  }
+
+  private static boolean isPosix(Path directory) {
+    return Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null;
+  }
+
+  private static void restrict(Path path, boolean directory) throws IOException {
+    PosixFileAttributeView posix =
+        Files.getFileAttributeView(path, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+    if (posix != null) {
+      posix.setPermissions(directory ? DIRECTORY_PERMISSIONS : FILE_PERMISSIONS);
+      return;
+    }
+    AclFileAttributeView acl = Files.getFileAttributeView(path, AclFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+    if (acl != null) {
+      AclEntry.Builder entry = AclEntry.newBuilder()
+          .setType(AclEntryType.ALLOW)
+          .setPrincipal(acl.getOwner())
+          .setPermissions(EnumSet.allOf(AclEntryPermission.class));
+      if (directory) {
+        entry.setFlags(AclEntryFlag.FILE_INHERIT, AclEntryFlag.DIRECTORY_INHERIT);
+      }
+      acl.setAcl(Collections.singletonList(entry.build()));
+    }
+  }
+}
@@ -12,7 +12,7 @@ import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.archiver.war.WarArchiver;
+import org.codehaus.plexus.util.MatchPatterns;
 
 import java.io.File;
 
@@ -57,6 +57,14 @@ public class PackageAppMojo extends AbstractMojo {
   @Parameter
   private MavenArchiveConfiguration archive = new MavenArchiveConfiguration();
 
+  /**
+   * Patterns of the files to store in the WAR without compressing them. By default, files that are already
+   * compressed: images (including image bundles), fonts, archives, and precompressed siblings.
+   */
+  @Parameter(defaultValue = "**/*.png,**/*.gif,**/*.jpg,**/*.jpeg,**/*.webp,**/*.ico,**/*.woff,**/*.woff2,"
+      + "**/*.gz,**/*.br,**/*.zip,**/*.jar")
+  private String[] storedFiles;
+
   @Parameter(defaultValue = "${project}", required = true, readonly = true)
   private MavenProject project;
 
@@ -64,11 +72,15 @@ public class PackageAppMojo extends AbstractMojo {
   private MavenSession session;
 
   @Inject
-  private WarArchiver warArchiver;
+  private GwtAppArchiver warArchiver;
 
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     warArchiver.setExpectWebXml(false);
+    MatchPatterns storedFilesPatterns = storedFiles == null || storedFiles.length == 0
+        ? null
+        : MatchPatterns.from(storedFiles);
+    warArchiver.setStoredFiles(storedFilesPatterns);
 
     File warFile = new File(outputDirectory, warName + ".war");
 
@@ -0,0 +1,157 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Compiles a GWT module in three steps: {@code Precompile}, {@code CompilePerms} for each permutation, and
+ * {@code Link}; each in its own forked JVM.
+ * <p>
+ * Permutations are compiled in a pool of workers shared by all modules of the build, so that modules built in
+ * parallel ({@code mvn -T}) compete for the same, bounded, resources. The pool is sized by the first module using it.
+ */
+class PermutationScheduler {
+  /** Arguments to the GWT compiler not understood by {@code Precompile} and {@code CompilePerms}, with a value. */
+  private static final Set<String> COMPILER_ONLY_ARGS_WITH_VALUE =
+      new HashSet<>(Arrays.asList("-war", "-deploy", "-extra", "-saveSourceOutput", "-localWorkers"));
+  /** Arguments to the GWT compiler not understood by {@code Precompile} and {@code CompilePerms}, without value. */
+  private static final Set<String> COMPILER_ONLY_FLAGS = new HashSet<>(Arrays.asList("-incremental", "-noincremental"));
+  /** Arguments to the GWT compiler also understood by {@code Link}, with a value. */
+  private static final Set<String> LINK_ARGS_WITH_VALUE =
+      new HashSet<>(Arrays.asList("-logLevel", "-workDir", "-war", "-deploy", "-extra", "-saveSourceOutput"));
+
+  private static ExecutorService pool;
+  private static int poolSize;
+
+  private final Log log;
+  private final CommandLine commandLine;
+
+  PermutationScheduler(Log log, CommandLine commandLine) {
+    this.log = log;
+    this.commandLine = commandLine;
+  }
+
+  private static synchronized ExecutorService getPool(Log log, int size) {
+    if (pool == null) {
+      poolSize = size;
+      final AtomicInteger count = new AtomicInteger();
+      pool = Executors.newFixedThreadPool(size, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "gwt-permutation-worker-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    log.info("Compiling permutations with up to " + poolSize + " workers shared by all modules");
+    return pool;
+  }
+
+  /**
+   * @param classpath the classpath of the forked JVMs
+   * @param jvmOptions the JVM options of the forked JVMs
+   * @param compilerArgs the arguments to the GWT compiler, ending with the module name
+   * @param workDir the GWT work directory
+   * @param workers the size of the pool, if it has to be created
+   */
+  void compile(Iterable<String> classpath, List<String> jvmOptions, List<String> compilerArgs, File workDir,
+      int workers) throws MojoExecutionException {
+    String moduleName = compilerArgs.get(compilerArgs.size() - 1);
+    List<String> precompileArgs = new ArrayList<>();
+    List<String> linkArgs = new ArrayList<>();
+    for (int i = 0; i < compilerArgs.size() - 1; i++) {
+      String arg = compilerArgs.get(i);
+      boolean hasValue = i + 1 < compilerArgs.size() - 1
+          && (COMPILER_ONLY_ARGS_WITH_VALUE.contains(arg) || LINK_ARGS_WITH_VALUE.contains(arg));
+      if (LINK_ARGS_WITH_VALUE.contains(arg) && hasValue) {
+        linkArgs.add(arg);
+        linkArgs.add(compilerArgs.get(i + 1));
+      }
+      if (COMPILER_ONLY_ARGS_WITH_VALUE.contains(arg) && hasValue) {
+        i++;
+        continue;
+      }
+      if (COMPILER_ONLY_FLAGS.contains(arg)) {
+        continue;
+      }
+      precompileArgs.add(arg);
+      if (hasValue) {
+        precompileArgs.add(compilerArgs.get(++i));
+      }
+    }
+
+    File permCountFile = new File(new File(new File(workDir, moduleName), "compiler"), "permCount.txt");
+    permCountFile.delete();
+    commandLine.execute(classpath, buildArgs(jvmOptions, "com.google.gwt.dev.Precompile", precompileArgs, moduleName));
+
+    int permCount;
+    try {
+      permCount = Integer.parseInt(new String(Files.readAllBytes(permCountFile.toPath()), StandardCharsets.UTF_8).trim());
+    } catch (IOException | NumberFormatException e) {
+      throw new MojoExecutionException("Cannot read number of permutations from " + permCountFile, e);
+    }
+
+    ExecutorService pool = getPool(log, workers);
+    List<Future<Void>> futures = new ArrayList<>(permCount);
+    for (int perm = 0; perm < permCount; perm++) {
+      List<String> permArgs = new ArrayList<>(precompileArgs);
+      permArgs.add("-perms");
+      permArgs.add(String.valueOf(perm));
+      final List<String> args = buildArgs(jvmOptions, "com.google.gwt.dev.CompilePerms", permArgs, moduleName);
+      final Iterable<String> cp = classpath;
+      futures.add(pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws MojoExecutionException {
+          commandLine.execute(cp, args);
+          return null;
+        }
+      }));
+    }
+    MojoExecutionException failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof MojoExecutionException
+              ? (MojoExecutionException) e.getCause()
+              : new MojoExecutionException(e.getCause().getMessage(), e.getCause());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MojoExecutionException("Interrupted while compiling permutations", e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    commandLine.execute(classpath, buildArgs(jvmOptions, "com.google.gwt.dev.Link", linkArgs, moduleName));
+  }
+
+  private static List<String> buildArgs(List<String> jvmOptions, String mainClass, List<String> args, String moduleName) {
+    List<String> result = new ArrayList<>(jvmOptions);
+    result.add(mainClass);
+    result.addAll(args);
+    result.add(moduleName);
+    return result;
+  }
+}
@@ -0,0 +1,228 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Writes precompressed siblings of files: {@code .gz} with gzip, and optionally {@code .br} with the {@code brotli}
+ * command-line tool.
+ * <p>
+ * Files are compressed in parallel. The hash of their content is recorded in a state file, such that they're only
+ * compressed again when they change. Siblings that wouldn't be smaller than the file aren't written, and siblings of
+ * files that no longer exist are deleted.
+ */
+class Precompressor {
+  private static final String HEADER = "# GWT precompressed files, version 1";
+  private static final String GZIP = "gz";
+  private static final String BROTLI = "br";
+
+  /** State of a sibling: hash of the file it's been compressed from, and whether it has been written. */
+  private static class State {
+    final String hash;
+    final boolean written;
+
+    State(String hash, boolean written) {
+      this.hash = hash;
+      this.written = written;
+    }
+  }
+
+  private final Log log;
+  private final @Nullable String brotliExecutable;
+
+  /**
+   * @param brotliExecutable the brotli command-line tool, or {@code null} to only write gzip siblings
+   */
+  Precompressor(Log log, @Nullable String brotliExecutable) {
+    this.log = log;
+    this.brotliExecutable = brotliExecutable;
+  }
+
+  /**
+   * Writes precompressed siblings of the files of the given directory matching the given patterns.
+   *
+   * @param stateFile the file where to record the state of the siblings between builds
+   */
+  void precompress(File directory, String[] includes, File stateFile) throws MojoExecutionException {
+    if (!directory.isDirectory()) {
+      return;
+    }
+    List<String> encodings = new ArrayList<>();
+    encodings.add(GZIP);
+    if (brotliExecutable != null) {
+      encodings.add(BROTLI);
+    }
+
+    DirectoryScanner scanner = new DirectoryScanner();
+    scanner.setBasedir(directory);
+    scanner.setIncludes(includes);
+    scanner.setExcludes(new String[] { "**/*." + GZIP, "**/*." + BROTLI });
+    scanner.addDefaultExcludes();
+    scanner.scan();
+    String[] files = scanner.getIncludedFiles();
+    Arrays.sort(files);
+
+    Map<String, State> previous = readState(stateFile);
+    Map<String, State> current = new TreeMap<>();
+    int[] compressed = new int[files.length];
+    try {
+      IntStream.range(0, files.length).parallel().forEach(i -> {
+        try {
+          compressed[i] = precompress(directory, files[i], encodings, previous, current);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw new MojoExecutionException("Error precompressing files: " + e.getCause().getMessage(), e.getCause());
+    }
+
+    // Delete siblings of files that no longer exist, or for encodings that are no longer enabled
+    for (Map.Entry<String, State> entry : previous.entrySet()) {
+      if (entry.getValue().written && !current.containsKey(entry.getKey())) {
+        new File(directory, entry.getKey()).delete();
+      }
+    }
+
+    try {
+      writeState(stateFile, current);
+    } catch (IOException e) {
+      log.warn("Could not write " + stateFile + ", files will be compressed again on next build: " + e.getMessage());
+      stateFile.delete();
+    }
+
+    int count = 0;
+    for (int c : compressed) {
+      count += c;
+    }
+    log.info("Precompressed " + count + " files, " + (files.length - count) + " up to date");
+  }
+
+  /**
+   * Writes the siblings of a file that aren't up to date, and returns {@code 1} if there was any, {@code 0} otherwise.
+   */
+  private int precompress(File directory, String path, List<String> encodings, Map<String, State> previous,
+      Map<String, State> current) throws IOException {
+    File file = new File(directory, path);
+    String hash;
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      hash = BuildFingerprint.hash(in);
+    }
+    int result = 0;
+    for (String encoding : encodings) {
+      String siblingPath = path + "." + encoding;
+      File sibling = new File(directory, siblingPath);
+      State state = previous.get(siblingPath);
+      if (state == null || !state.hash.equals(hash) || (state.written && !sibling.isFile())) {
+        state = new State(hash, compress(file, sibling, encoding));
+        result = 1;
+      }
+      synchronized (current) {
+        current.put(siblingPath, state);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Compresses the file to its sibling, and returns whether the sibling has been written.
+   */
+  private boolean compress(File file, File sibling, String encoding) throws IOException {
+    File tmpFile = new File(sibling.getPath() + ".tmp");
+    try {
+      if (GZIP.equals(encoding)) {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmpFile.toPath())) {
+              {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+              }
+            }) {
+          Files.copy(file.toPath(), out);
+        }
+      } else {
+        brotli(file, tmpFile);
+      }
+      if (tmpFile.length() >= file.length()) {
+        Files.deleteIfExists(sibling.toPath());
+        return false;
+      }
+      Files.move(tmpFile.toPath(), sibling.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      sibling.setLastModified(file.lastModified());
+      return true;
+    } finally {
+      tmpFile.delete();
+    }
+  }
+
+  private void brotli(File file, File output) throws IOException {
+    org.apache.commons.exec.CommandLine commandLine = new org.apache.commons.exec.CommandLine(brotliExecutable);
+    commandLine.addArguments(new String[] { "--best", "--force", "--output=" + output.getAbsolutePath(), "--",
+        file.getAbsolutePath() }, false);
+    Executor executor = DefaultExecutor.builder().get();
+    executor.setStreamHandler(new PumpStreamHandler(new LogOutputStream() {
+      @Override
+      protected void processLine(String line, int logLevel) {
+        log.warn(line);
+      }
+    }));
+    try {
+      executor.execute(commandLine);
+    } catch (IOException e) {
+      throw new IOException("Could not run " + brotliExecutable + " on " + file + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static Map<String, State> readState(File stateFile) {
+    Map<String, State> states = new TreeMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return new TreeMap<>();
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length != 3) {
+          return new TreeMap<>();
+        }
+        states.put(parts[2], new State(parts[0], Boolean.parseBoolean(parts[1])));
+      }
+    } catch (IOException e) {
+      return new TreeMap<>();
+    }
+    return states;
+  }
+
+  private static void writeState(File stateFile, Map<String, State> states) throws IOException {
+    stateFile.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(stateFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Map.Entry<String, State> entry : states.entrySet()) {
+        writer.write(entry.getValue().hash + '\t' + entry.getValue().written + '\t' + entry.getKey() + '\n');
+      }
+    }
+  }
+}
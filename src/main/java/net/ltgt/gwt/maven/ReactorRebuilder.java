@@ -0,0 +1,132 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.Executor;
+import org.apache.commons.exec.LogOutputStream;
+import org.apache.commons.exec.PumpStreamHandler;
+import org.apache.commons.exec.ShutdownHookProcessDestroyer;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.Os;
+
+/**
+ * Runs a phase of the build, e.g. {@code process-classes}, on some projects of the reactor and the projects they
+ * depend on, in a new Maven process.
+ * <p>
+ * The build is run in the same directory, with the same POM, user and global settings, local repository, user
+ * properties, active and inactive profiles, and offline mode as the current one.
+ * <p>
+ * The projects they depend on are those of the current build, such that they're resolved from the reactor as in the
+ * current build, rather than from the local repository; unlike {@code --also-make}, this doesn't add projects that
+ * aren't part of the current build.
+ */
+class ReactorRebuilder {
+  private final Log log;
+  private final MavenSession session;
+  private final String phase;
+
+  ReactorRebuilder(Log log, MavenSession session, String phase) {
+    this.log = log;
+    this.session = session;
+    this.phase = phase;
+  }
+
+  /**
+   * Runs the phase on the given projects, logging the outcome, and returns whether it succeeded.
+   */
+  synchronized boolean rebuild(Collection<MavenProject> projects) {
+    List<String> projectIds = new ArrayList<>();
+    for (MavenProject p : projects) {
+      projectIds.add(p.getGroupId() + ":" + p.getArtifactId());
+    }
+    log.info("Running " + phase + " on " + String.join(", ", projectIds));
+
+    ProjectDependencyGraph graph = session.getProjectDependencyGraph();
+    Set<String> selectedProjects = new LinkedHashSet<>();
+    for (MavenProject p : projects) {
+      for (MavenProject upstream : graph.getUpstreamProjects(p, true)) {
+        selectedProjects.add(upstream.getGroupId() + ":" + upstream.getArtifactId());
+      }
+    }
+    selectedProjects.addAll(projectIds);
+
+    File mavenHome = new File(System.getProperty("maven.home", ""));
+    org.apache.commons.exec.CommandLine commandLine = new org.apache.commons.exec.CommandLine(
+        new File(mavenHome, Os.isFamily(Os.FAMILY_WINDOWS) ? "bin/mvn.cmd" : "bin/mvn"));
+    MavenExecutionRequest request = session.getRequest();
+    commandLine.addArgument("--batch-mode");
+    commandLine.addArgument("--quiet");
+    if (request.getPom() != null) {
+      commandLine.addArgument("--file");
+      commandLine.addArgument(request.getPom().getAbsolutePath(), false);
+    }
+    if (request.getUserSettingsFile() != null && request.getUserSettingsFile().isFile()) {
+      commandLine.addArgument("--settings");
+      commandLine.addArgument(request.getUserSettingsFile().getAbsolutePath(), false);
+    }
+    if (request.getGlobalSettingsFile() != null && request.getGlobalSettingsFile().isFile()) {
+      commandLine.addArgument("--global-settings");
+      commandLine.addArgument(request.getGlobalSettingsFile().getAbsolutePath(), false);
+    }
+    if (request.getLocalRepositoryPath() != null && !request.getUserProperties().containsKey("maven.repo.local")) {
+      commandLine.addArgument("-Dmaven.repo.local=" + request.getLocalRepositoryPath().getAbsolutePath(), false);
+    }
+    if (session.isOffline()) {
+      commandLine.addArgument("--offline");
+    }
+    List<String> profiles = new ArrayList<>(request.getActiveProfiles());
+    for (String profile : request.getInactiveProfiles()) {
+      profiles.add("!" + profile);
+    }
+    if (!profiles.isEmpty()) {
+      commandLine.addArgument("--activate-profiles");
+      commandLine.addArgument(String.join(",", profiles), false);
+    }
+    for (Map.Entry<Object, Object> property : request.getUserProperties().entrySet()) {
+      commandLine.addArgument("-D" + property.getKey() + "=" + property.getValue(), false);
+    }
+    // Only compile stale sources: the "incremental" mode recreates the generated sources directories, which GWT
+    // would then stop watching.
+    commandLine.addArgument("-Dmaven.compiler.useIncrementalCompilation=false");
+    commandLine.addArgument("--projects");
+    commandLine.addArgument(String.join(",", selectedProjects), false);
+    commandLine.addArgument(phase);
+
+    Executor executor = DefaultExecutor.builder().get();
+    executor.setWorkingDirectory(new File(session.getExecutionRootDirectory()));
+    executor.setStreamHandler(new PumpStreamHandler(new LogOutputStream() {
+      @Override
+      protected void processLine(String line, int logLevel) {
+        log.warn(line);
+      }
+    }));
+    executor.setProcessDestroyer(new ShutdownHookProcessDestroyer());
+    executor.setExitValues(null);
+    long start = System.currentTimeMillis();
+    int result;
+    try {
+      result = executor.execute(commandLine);
+    } catch (IOException e) {
+      log.warn("Cannot run Maven from " + mavenHome + ": " + e.getMessage());
+      return false;
+    }
+    if (result != 0) {
+      log.warn("Running " + phase + " failed, with status " + result);
+      return false;
+    }
+    log.info("Ran " + phase + " in " + (System.currentTimeMillis() - start) + " ms");
+    return true;
+  }
+}
@@ -0,0 +1,151 @@
+package net.ltgt.gwt.maven;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Watches directories with a {@link WatchService}, and tells a listener under which of them files have changed.
+ * <p>
+ * Changes are debounced: the listener is called, on the thread of the watcher, once no file has changed for the given
+ * delay. Backup, swap and lock files from editors are ignored.
+ */
+class SourceWatcher implements Closeable {
+  private final Log log;
+  private final String name;
+  private final long delay;
+  private final Consumer<Set<Path>> listener;
+  private final WatchService watchService;
+  /** The root of each watched directory. */
+  private final Map<WatchKey, Path> roots = new ConcurrentHashMap<>();
+  private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+  private final Thread thread;
+
+  /**
+   * @param name what's being watched, for logging
+   * @param delay the time without changes after which to call the listener, in milliseconds
+   * @param listener called with the roots under which files have changed
+   */
+  SourceWatcher(Log log, String name, Collection<Path> roots, long delay, Consumer<Set<Path>> listener)
+      throws IOException {
+    this.log = log;
+    this.name = name;
+    this.delay = delay;
+    this.listener = listener;
+    this.watchService = FileSystems.getDefault().newWatchService();
+    try {
+      for (Path root : roots) {
+        if (Files.isDirectory(root)) {
+          register(root, root);
+        }
+      }
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+    this.thread = new Thread(this::run, "GWT watcher for " + name);
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    log.info("Watching " + directories.size() + " directories of " + name);
+    thread.start();
+  }
+
+  @Override
+  public void close() throws IOException {
+    thread.interrupt();
+    watchService.close();
+  }
+
+  private void register(Path root, Path dir) throws IOException {
+    Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        roots.put(key, root);
+        directories.put(key, dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void run() {
+    try {
+      for (;;) {
+        Set<Path> changed = new LinkedHashSet<>();
+        for (WatchKey key = watchService.take(); key != null; key = watchService.poll(delay, TimeUnit.MILLISECONDS)) {
+          processEvents(key, changed);
+        }
+        if (!changed.isEmpty()) {
+          try {
+            listener.accept(changed);
+          } catch (RuntimeException e) {
+            log.warn("Error handling changes to " + name + ", still watching", e);
+          }
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  /**
+   * Processes the events of the given key, registering new directories, and adds its root to the given set if any
+   * file changed.
+   */
+  private void processEvents(WatchKey key, Set<Path> changed) {
+    Path root = roots.get(key);
+    Path dir = directories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (root == null) {
+        continue;
+      }
+      if (event.kind() == OVERFLOW) {
+        changed.add(root);
+        continue;
+      }
+      Path child = dir.resolve((Path) event.context());
+      String fileName = child.getFileName().toString();
+      if (fileName.startsWith(".") || fileName.endsWith("~")) {
+        continue;
+      }
+      changed.add(root);
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+        try {
+          register(root, child);
+        } catch (IOException e) {
+          log.warn("Cannot watch " + child + ": " + e.getMessage());
+        }
+      }
+    }
+    if (!key.reset()) {
+      roots.remove(key);
+      directories.remove(key);
+    }
+  }
+}
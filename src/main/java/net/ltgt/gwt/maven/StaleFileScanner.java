@@ -0,0 +1,145 @@
+package net.ltgt.gwt.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.MatchPatterns;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Finds files newer than a given timestamp, walking directories in parallel.
+ * <p>
+ * The scan stops as soon as a newer file is found, unless asked to collect all of them (e.g. to log them).
+ * Files matching the {@link DirectoryScanner#DEFAULTEXCLUDES default excludes} (version control metadata, editor
+ * backup files, etc.) are ignored, and symbolic links are followed, like with a {@code StaleSourceScanner}.
+ */
+class StaleFileScanner {
+  private static final MatchPatterns DEFAULT_EXCLUDES = MatchPatterns.from(DirectoryScanner.DEFAULTEXCLUDES);
+
+  private final long lastModified;
+  private final boolean collectAll;
+  private final AtomicBoolean found = new AtomicBoolean();
+  private final Queue<File> staleFiles = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param lastModified the timestamp files must be newer than to be considered stale
+   * @param collectAll whether to find all stale files rather than stopping at the first one
+   */
+  StaleFileScanner(long lastModified, boolean collectAll) {
+    this.lastModified = lastModified;
+    this.collectAll = collectAll;
+  }
+
+  /**
+   * Returns the stale files among the given files and the content of the given directories; only the first one found
+   * unless collecting all of them. Missing files are ignored.
+   */
+  List<File> scan(Collection<File> inputs) throws IOException {
+    List<Scan> tasks = new ArrayList<>(inputs.size());
+    for (File input : inputs) {
+      if (input != null) {
+        tasks.add(new Scan(input.toPath(), null));
+      }
+    }
+    try {
+      ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new ArrayList<>(staleFiles);
+  }
+
+  private boolean isDone() {
+    return found.get() && !collectAll;
+  }
+
+  private class Scan extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path path;
+    /** Path relative to the scanned root, to match default excludes; {@code null} for the root itself. */
+    private final @Nullable String relativePath;
+
+    Scan(Path path, @Nullable String relativePath) {
+      this.path = path;
+      this.relativePath = relativePath;
+    }
+
+    @Override
+    protected void compute() {
+      if (isDone()) {
+        return;
+      }
+      BasicFileAttributes attrs;
+      try {
+        attrs = Files.readAttributes(path, BasicFileAttributes.class);
+      } catch (NoSuchFileException e) {
+        return;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (!attrs.isDirectory()) {
+        checkFile(path, attrs);
+        return;
+      }
+      List<Scan> subdirs = new ArrayList<>();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+        for (Path child : children) {
+          if (isDone()) {
+            return;
+          }
+          String childRelativePath = relativePath == null
+              ? child.getFileName().toString()
+              : relativePath + File.separator + child.getFileName();
+          if (DEFAULT_EXCLUDES.matches(childRelativePath, true)) {
+            continue;
+          }
+          BasicFileAttributes childAttrs;
+          try {
+            childAttrs = Files.readAttributes(child, BasicFileAttributes.class);
+          } catch (NoSuchFileException e) {
+            // deleted concurrently, or broken symbolic link
+            continue;
+          }
+          if (childAttrs.isDirectory()) {
+            subdirs.add(new Scan(child, childRelativePath));
+          } else {
+            checkFile(child, childAttrs);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      invokeAll(subdirs);
+    }
+
+    private void checkFile(Path file, BasicFileAttributes attrs) {
+      if (attrs.lastModifiedTime().toMillis() > lastModified && (collectAll || found.compareAndSet(false, true))) {
+        found.set(true);
+        staleFiles.add(file.toFile());
+      }
+    }
+  }
+}
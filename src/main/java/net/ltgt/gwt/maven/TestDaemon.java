@@ -0,0 +1,317 @@
+package net.ltgt.gwt.maven;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A long-lived JVM running JUnit 3 tests, such as {@code GWTTestCase} tests, on behalf of {@link TestMojo}.
+ * <p>
+ * Like the {@link CompilerDaemon}, the daemon is launched with the plugin JAR as its sole classpath entry, so this
+ * class must only depend on the JDK. A daemon serves a single test classpath and configuration: the JARs are loaded
+ * once, along with JUnitShell, its embedded web server, HtmlUnit and the GWT compiler with its in-memory unit cache,
+ * while directories (the project's classes and sources) are loaded by a new class loader for each run.
+ * <p>
+ * JUnitShell isn't meant to run tests more than once, so its state is reset between runs: modules are compiled again
+ * (reusing the units that didn't change) and a new browser client is launched. Server-side classes of the project,
+ * such as servlets declared in modules, are only loaded by the first run though.
+ * <p>
+ * A run lists the tests of the requested classes to the client, which answers with the tests to run.
+ */
+public class TestDaemon {
+  /** Frame listing the tests of the requested classes, answered by the client with the tests to run. */
+  static final int TESTS = 3;
+
+  /**
+   * Exit code of a run when JUnitShell can't be reset with this version of GWT; the daemon then stops, and the client
+   * should run the tests in a new JVM.
+   */
+  static final int UNSUPPORTED = 2;
+
+  /** Private fields of JUnitShell reset between runs. */
+  private static final String[] SHELL_FIELDS = {
+      "unitTestShell", "messageQueue", "compileStrategy", "currentModule", "lastModule", "currentCompilationState",
+      "currentTestInfo", "pendingException", "lastLaunchFailed", "runStyleStarted" };
+
+  /**
+   * Output streams forwarding to the client during a run, and to the daemon logs otherwise. GWT keeps a reference to
+   * {@code System.out} when JUnitShell starts, so it must not be replaced by each run.
+   */
+  private static class Redirect extends OutputStream {
+    private final OutputStream daemonOutput;
+    private volatile OutputStream target;
+
+    Redirect(OutputStream daemonOutput) {
+      this.daemonOutput = daemonOutput;
+      this.target = daemonOutput;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      target.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      target.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      target.flush();
+    }
+  }
+
+  private static final Redirect out = new Redirect(System.out);
+  private static final Redirect err = new Redirect(System.err);
+
+  private static @Nullable List<String> classpath;
+  private static @Nullable URLClassLoader jarLoader;
+  private static URL[] directories;
+
+  /**
+   * Usage: {@code TestDaemon <state file> <idle timeout in seconds>}
+   */
+  public static void main(String[] args) throws Exception {
+    System.setOut(new PrintStream(out, true, "UTF-8"));
+    System.setErr(new PrintStream(err, true, "UTF-8"));
+    CompilerDaemon.serve(new File(args[0]), Integer.parseInt(args[1]), TestDaemon::handle);
+    // Terminate the web server and browser threads.
+    System.exit(0);
+  }
+
+  private static boolean handle(DataInputStream in, DataOutputStream response) throws IOException {
+    List<String> requestedClasspath = CompilerDaemon.readList(in);
+    // names and values of system properties, alternating
+    List<String> properties = CompilerDaemon.readList(in);
+    List<String> testClasses = CompilerDaemon.readList(in);
+
+    if (classpath == null) {
+      init(requestedClasspath, properties);
+    } else if (!classpath.equals(requestedClasspath)) {
+      // Shouldn't happen as daemons are identified by their classpath, but a new daemon is needed anyway.
+      System.out.println("Classpath changed, exiting.");
+      return false;
+    }
+    try {
+      resetShell();
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      String message = "The GWT test daemon doesn't support GWT " + getGwtVersion() + ", it cannot reset JUnitShell: "
+          + e;
+      System.out.println(message + ", exiting.");
+      e.printStackTrace();
+      PrintStream client = new PrintStream(new CompilerDaemon.FrameOutputStream(response, CompilerDaemon.ERR), true,
+          "UTF-8");
+      client.println(message);
+      CompilerDaemon.writeExit(response, UNSUPPORTED);
+      return false;
+    }
+
+    out.target = new CompilerDaemon.FrameOutputStream(response, CompilerDaemon.OUT);
+    err.target = new CompilerDaemon.FrameOutputStream(response, CompilerDaemon.ERR);
+    int exitCode;
+    try {
+      exitCode = run(testClasses, in, response);
+    } catch (Throwable t) {
+      t.printStackTrace();
+      exitCode = 1;
+    } finally {
+      System.out.flush();
+      System.err.flush();
+      out.target = out.daemonOutput;
+      err.target = err.daemonOutput;
+    }
+    CompilerDaemon.writeExit(response, exitCode);
+    return true;
+  }
+
+  private static void init(List<String> requestedClasspath, List<String> properties) throws IOException {
+    List<URL> jars = new ArrayList<>();
+    List<URL> dirs = new ArrayList<>();
+    for (String entry : requestedClasspath) {
+      File file = new File(entry).getAbsoluteFile();
+      (file.isDirectory() ? dirs : jars).add(file.toURI().toURL());
+    }
+    for (int i = 0; i + 1 < properties.size(); i += 2) {
+      System.setProperty(properties.get(i), properties.get(i + 1));
+    }
+    // GWT scans the classpath from the java.class.path system property.
+    System.setProperty("java.class.path", String.join(File.pathSeparator, requestedClasspath));
+    jarLoader = new URLClassLoader(jars.toArray(new URL[0]), TestDaemon.class.getClassLoader().getParent());
+    directories = dirs.toArray(new URL[0]);
+    classpath = requestedClasspath;
+  }
+
+  /**
+   * Resets the state JUnitShell keeps from the previous run, if any, such that it compiles the modules again and
+   * launches a new browser client, as it would in a new JVM.
+   * <p>
+   * This relies on private members of JUnitShell and related classes. They're all looked up first, such that a version
+   * of GWT where they changed is detected on the first run, rather than leaving a half-reset shell.
+   */
+  private static void resetShell() throws ReflectiveOperationException {
+    Class<?> moduleDefLoaderClass = Class.forName("com.google.gwt.dev.cfg.ModuleDefLoader", true, jarLoader);
+    Method clearModuleCache = moduleDefLoaderClass.getMethod("clearModuleCache");
+    Class<?> shellClass = Class.forName("com.google.gwt.junit.JUnitShell", true, jarLoader);
+    for (String name : SHELL_FIELDS) {
+      shellClass.getDeclaredField(name);
+    }
+    Class<?> queueClass = Class.forName("com.google.gwt.junit.JUnitMessageQueue", true, jarLoader);
+    queueClass.getDeclaredField("isLastTestBlockAvailable");
+    Method addTestBlocks = queueClass.getDeclaredMethod("addTestBlocks", List.class, boolean.class);
+    Method getNumClients = queueClass.getDeclaredMethod("getNumClients");
+    Constructor<?> queueConstructor = queueClass.getDeclaredConstructor(int.class);
+    Class<?> hostClass = Class.forName("com.google.gwt.junit.server.JUnitHostImpl", true, jarLoader);
+    hostClass.getDeclaredField("sHost");
+
+    clearModuleCache.invoke(null);
+    Object shell = getField(shellClass, null, "unitTestShell");
+    if (shell == null) {
+      return;
+    }
+    // The compile strategy remembers the modules it compiled.
+    Object compileStrategy = getField(shellClass, shell, "compileStrategy");
+    Constructor<?> strategyConstructor = compileStrategy.getClass().getDeclaredConstructor(shellClass);
+
+    // The browser client of the previous run waits for more tests; tell it there are none so it stops.
+    Object queue = getField(shellClass, shell, "messageQueue");
+    if (!(Boolean) getField(queueClass, queue, "isLastTestBlockAvailable")) {
+      addTestBlocks.setAccessible(true);
+      addTestBlocks.invoke(queue, Collections.emptyList(), true);
+    }
+    getNumClients.setAccessible(true);
+    queueConstructor.setAccessible(true);
+    setField(shellClass, shell, "messageQueue", queueConstructor.newInstance(getNumClients.invoke(queue)));
+    // The servlet caches the queue it gets from the shell.
+    setField(hostClass, null, "sHost", null);
+
+    strategyConstructor.setAccessible(true);
+    setField(shellClass, shell, "compileStrategy", strategyConstructor.newInstance(shell));
+
+    for (String name : new String[] {
+        "currentModule", "lastModule", "currentCompilationState", "currentTestInfo", "pendingException" }) {
+      setField(shellClass, shell, name, null);
+    }
+    setField(shellClass, shell, "lastLaunchFailed", false);
+    setField(shellClass, shell, "runStyleStarted", false);
+  }
+
+  private static String getGwtVersion() {
+    try {
+      return (String) Class.forName("com.google.gwt.dev.About", true, jarLoader).getMethod("getGwtVersionNum")
+          .invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return "(unknown version)";
+    }
+  }
+
+  private static int run(List<String> testClasses, DataInputStream in, DataOutputStream response) throws Exception {
+    URLClassLoader projectLoader = new URLClassLoader(directories, jarLoader);
+    Thread.currentThread().setContextClassLoader(projectLoader);
+
+    Class<?> testInterface = Class.forName("junit.framework.Test", true, jarLoader);
+    Class<?> testCaseClass = Class.forName("junit.framework.TestCase", true, jarLoader);
+    Class<?> testSuiteClass = Class.forName("junit.framework.TestSuite", true, jarLoader);
+    Map<String, Object> tests = new LinkedHashMap<>();
+    for (String className : testClasses) {
+      Class<?> testClass = Class.forName(className, true, projectLoader);
+      Object test = null;
+      Method suite = null;
+      try {
+        suite = testClass.getMethod("suite");
+      } catch (NoSuchMethodException e) {
+        // not a suite
+      }
+      if (suite != null && Modifier.isStatic(suite.getModifiers())
+          && testInterface.isAssignableFrom(suite.getReturnType())) {
+        test = suite.invoke(null);
+      } else if (testCaseClass.isAssignableFrom(testClass) && !Modifier.isAbstract(testClass.getModifiers())) {
+        test = testSuiteClass.getConstructor(Class.class).newInstance(testClass);
+      } else {
+        System.out.println("Skipping " + className + ", not a JUnit 3 test");
+      }
+      if (test != null) {
+        addTests(test, testSuiteClass, testCaseClass, tests);
+      }
+    }
+
+    synchronized (response) {
+      response.writeByte(TESTS);
+      CompilerDaemon.writeList(response, new ArrayList<>(tests.keySet()));
+      response.flush();
+    }
+    List<String> selected = CompilerDaemon.readList(in);
+    if (selected.isEmpty()) {
+      return 0;
+    }
+
+    // GWTTestCase registers each test by module when its name is set; only keep the selected tests.
+    Class<?> gwtTestCaseClass = Class.forName("com.google.gwt.junit.client.GWTTestCase", true, jarLoader);
+    ((Map<?, ?>) gwtTestCaseClass.getField("ALL_GWT_TESTS").get(null)).clear();
+    Object suite = testSuiteClass.getConstructor().newInstance();
+    Method addTest = testSuiteClass.getMethod("addTest", testInterface);
+    Method getName = testCaseClass.getMethod("getName");
+    Method setName = testCaseClass.getMethod("setName", String.class);
+    for (String name : selected) {
+      Object test = tests.get(name);
+      if (testCaseClass.isInstance(test)) {
+        setName.invoke(test, getName.invoke(test));
+      }
+      addTest.invoke(suite, test);
+    }
+
+    Class<?> runnerClass = Class.forName("junit.textui.TestRunner", true, jarLoader);
+    Object runner = runnerClass.getConstructor(PrintStream.class).newInstance(System.out);
+    Object result = runnerClass.getMethod("doRun", testInterface).invoke(runner, suite);
+    return (Boolean) result.getClass().getMethod("wasSuccessful").invoke(result) ? 0 : 1;
+  }
+
+  /**
+   * Adds the tests of the given suite or test case, named {@code class#method} for test cases, and after their class
+   * otherwise.
+   */
+  private static void addTests(Object test, Class<?> testSuiteClass, Class<?> testCaseClass, Map<String, Object> tests)
+      throws Exception {
+    if (testSuiteClass.isInstance(test)) {
+      Enumeration<?> children = (Enumeration<?>) testSuiteClass.getMethod("tests").invoke(test);
+      while (children.hasMoreElements()) {
+        addTests(children.nextElement(), testSuiteClass, testCaseClass, tests);
+      }
+    } else if (testCaseClass.isInstance(test)) {
+      tests.putIfAbsent(test.getClass().getName() + "#" + testCaseClass.getMethod("getName").invoke(test), test);
+    } else {
+      tests.putIfAbsent(test.getClass().getName(), test);
+    }
+  }
+
+  private static @Nullable Object getField(Class<?> clazz, @Nullable Object target, String name)
+      throws ReflectiveOperationException {
+    Field field = clazz.getDeclaredField(name);
+    field.setAccessible(true);
+    return field.get(target);
+  }
+
+  private static void setField(Class<?> clazz, @Nullable Object target, String name, @Nullable Object value)
+      throws ReflectiveOperationException {
+    Field field = clazz.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(target, value);
+  }
+}
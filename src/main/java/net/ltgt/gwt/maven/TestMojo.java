@@ -1,14 +1,22 @@
 package net.ltgt.gwt.maven;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -16,12 +24,15 @@ import org.apache.maven.plugin.surefire.AbstractSurefireMojo;
 import org.apache.maven.plugin.surefire.SurefireHelper;
 import org.apache.maven.plugin.surefire.SurefireReportParameters;
 import org.apache.maven.plugin.surefire.booterclient.ChecksumCalculator;
+import org.apache.maven.plugin.surefire.util.DirectoryScanner;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.surefire.api.suite.RunResult;
+import org.apache.maven.surefire.api.testset.TestListResolver;
 import org.apache.maven.surefire.extensions.ForkNodeFactory;
+import org.codehaus.plexus.util.StringUtils;
 import org.jspecify.annotations.Nullable;
 
 /**
@@ -80,6 +91,10 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
    * The number of local workers to use when compiling permutations. When terminated
    * with "C", the number part is multiplied with the number of CPU cores. Floating
    * point values are only accepted together with "C".
+   * <p>
+   * When {@code auto}, the number of workers is computed from the CPU cores and the memory
+   * available (taking container limits into account) shared by the GWT compilations running
+   * concurrently in the build, and the maximum heap size ({@code -Xmx} in {@link #argLine}).
    */
   @Parameter(property = "gwt.localWorkers")
   private String localWorkers;
@@ -104,6 +119,10 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
 
   /**
    * The directory to write output files into.
+   * <p>
+   * When {@link #unitCacheDir} is set and tests are run in several forks ({@code forkCount} greater than 1), each fork
+   * writes into its own {@code fork-N} subdirectory of this directory, and of {@link #workDir}, {@link #deploy} and
+   * {@link #extra}.
    */
   @Parameter(defaultValue = "${project.build.directory}/gwt-tests/www", required = true)
   private File outDir;
@@ -128,6 +147,67 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
   @Parameter(defaultValue = "false")
   private boolean useCompilerArgsForTests;
 
+  /**
+   * The directory where the GWT compiler persists compilation units, shared by all forked JVMs; for example
+   * {@code ${project.build.directory}/gwt-tests/unitCache}.
+   * <p>
+   * A subdirectory is used for each combination of GWT arguments and test classpath, such that forks compiling tests
+   * with the same configuration reuse the units compiled by each other, rather than each compiling them again. When
+   * tests are run in several forks, each fork then also writes its output into its own subdirectory of
+   * {@link #outDir}, {@link #workDir}, {@link #deploy} and {@link #extra}, such that they don't overwrite each other's.
+   * <p>
+   * When not set, GWT's own unit cache and the configured directories are used as-is, by all forks. The unit cache
+   * directory is not set either if {@code gwt.persistentunitcachedir} is set in {@code systemPropertyVariables} or
+   * {@code argLine}.
+   */
+  @Parameter(property = "gwt.testUnitCacheDir")
+  private @Nullable File unitCacheDir;
+
+  /**
+   * Whether to group {@code GWTTestCase} classes by GWT module when tests are run in several forks, such that each
+   * module is only compiled by one fork.
+   * <p>
+   * The test classes of each module are run by a suite generated in the {@code net.ltgt.gwt.maven.modules} package,
+   * and named after the module. Test reports are then named after those suites rather than after the grouped test
+   * classes, e.g. {@code TEST-net.ltgt.gwt.maven.modules.com_example_App.xml}, with one test case per test method of
+   * the grouped classes. The module of a test class is read from the constant returned by its {@code getModuleName()}
+   * method. The suites are generated in {@code ${project.build.directory}/gwt-tests/suites}, which is added to the
+   * classpath after the test and main classes, and run along with the tests that haven't been grouped.
+   * <p>
+   * The time to compile each module and run each test class is recorded in
+   * {@code ${project.build.directory}/gwt-tests/test-statistics}. When there are more modules than forks, the next
+   * runs use those timings to balance the modules in one suite per fork, such that all forks finish at about the same
+   * time.
+   * <p>
+   * This is ignored when tests are selected with {@code test}, {@code includesFile} or {@code excludesFile}.
+   */
+  @Parameter(property = "gwt.groupTestsByModule", defaultValue = "false")
+  private boolean groupTestsByModule;
+
+  /**
+   * Whether to run the tests in a long-lived JVM reused by later runs, rather than in Surefire forks, to shorten the
+   * edit-test loop: JUnitShell, its web server, HtmlUnit and the GWT compiler are only started once, and only the
+   * compilation units that changed are compiled again. Use {@code -Dtest=} to only run some tests.
+   * <p>
+   * A daemon is started on first use; it is only reused by runs with the same Java executable, {@code argLine},
+   * system properties (including the GWT arguments) and test classpath, and the same sizes and last modification dates
+   * of its JARs. Only JUnit 3 tests (such as {@code GWTTestCase} tests) are run, one at a time, and relative paths are
+   * resolved against the daemon's working directory. No test reports are written, and {@code forkCount},
+   * {@code reuseForks} and {@link #groupTestsByModule} are ignored. Server-side classes of the project, such as
+   * servlets declared in modules, are only loaded once per daemon.
+   * <p>
+   * The daemon resets private state of JUnitShell between runs; with a version of GWT where that state changed, it
+   * stops and the tests are run in Surefire forks instead.
+   */
+  @Parameter(property = "gwt.testDaemon", defaultValue = "false")
+  private boolean daemon;
+
+  /**
+   * The time (in seconds) after which an unused test daemon stops, when {@link #daemon} is {@code true}.
+   */
+  @Parameter(property = "gwt.daemonIdleTimeout", defaultValue = "10800")
+  private int daemonIdleTimeout;
+
   @Override
   public Map<String, String> getSystemPropertyVariables() {
     Map<String, String> props = super.getSystemPropertyVariables();
@@ -142,7 +222,8 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
       if (codeServerPort > 0) {
         sb.append(" -codeServerPort ").append(codeServerPort);
       }
-      for (String arg : CommandlineBuilder.buildArgs(getLog(), this)) {
+      List<String> jvmArgs = StringUtils.isBlank(getArgLine()) ? null : Arrays.asList(getArgLine().trim().split("\\s+"));
+      for (String arg : CommandlineBuilder.buildArgs(getLog(), this, jvmArgs)) {
         sb.append(" ").append(quote(arg));
       }
       sb.append(effectiveIsEnableAssertions() ? " -checkAssertions" : " -nocheckAssertions");
@@ -160,12 +241,55 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
 
       props.put("gwt.args", sb.toString());
     }
+    if (unitCacheDir != null && !props.containsKey(UNIT_CACHE_DIR_PROPERTY)
+        && (getArgLine() == null || !getArgLine().contains("-D" + UNIT_CACHE_DIR_PROPERTY + "="))) {
+      props.put(UNIT_CACHE_DIR_PROPERTY,
+          new File(unitCacheDir, getUnitCacheKey(props.get("gwt.args"))).getAbsolutePath());
+    }
     if (getLog().isDebugEnabled()) {
       getLog().debug("Using gwt.args: " + props.get("gwt.args"));
     }
     return props;
   }
 
+  private static final String UNIT_CACHE_DIR_PROPERTY = "gwt.persistentunitcachedir";
+
+  /**
+   * Subdirectory of each forked JVM, when several forks can run concurrently, such that they don't overwrite each
+   * other's output. The placeholder is replaced by Surefire in system properties.
+   */
+  private static final String FORK_DIR = "fork-${surefire.forkNumber}";
+
+  private File forkDir(File dir) {
+    return unitCacheDir != null && !daemon && getEffectiveForkCount() > 1 ? new File(dir, FORK_DIR) : dir;
+  }
+
+  private String getUnitCacheKey(String gwtArgs) {
+    List<String> key = new ArrayList<>();
+    key.add(gwtArgs);
+    for (Artifact artifact : getProject().getArtifacts()) {
+      // The generated module suites aren't compiled by GWT
+      if (artifact.getFile() != null
+          && !ModuleSuites.ARTIFACT_KEY.equals(artifact.getGroupId() + ":" + artifact.getArtifactId())) {
+        key.add(getClasspathEntryKey(artifact.getFile().getAbsolutePath()));
+      }
+    }
+    for (String element : getAdditionalClasspathElements()) {
+      key.add(getClasspathEntryKey(element));
+    }
+    // Only keep the beginning of the hash, to avoid long paths on Windows
+    return BuildFingerprint.hash(key).substring(0, 16);
+  }
+
+  /**
+   * Returns the path of a classpath entry, with its size and last modification date if it's a file, such that a JAR
+   * that's replaced at the same path changes the keys of the unit cache and of the daemons.
+   */
+  private static String getClasspathEntryKey(String entry) {
+    File file = new File(entry);
+    return file.isFile() ? entry + '@' + file.length() + '@' + file.lastModified() : entry;
+  }
+
   private Object quote(String value) {
     if (value.matches(".*[\"\\s].*")) {
       return "\"" + value.replace("\"", "\\\"") + "\"";
@@ -197,6 +321,9 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
     if (useCompilerArgsForTests) {
       checksum.add(compilerArgs);
     }
+    checksum.add(unitCacheDir);
+    checksum.add(groupTestsByModule);
+    checksum.add(daemon);
   }
 
   private String[] computedAdditionalClasspathElements;
@@ -641,12 +768,240 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
 
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
+    if (daemon && !isSkipExecution() && executeInDaemon()) {
+      return;
+    }
     if (!isSkipExecution()) { // let super.execute() handle the isSkipExecution case
       if (!isForking()) {
         getConsoleLogger().warning("ForkCount=0 is known not to work for GWT tests");
       }
     }
-    super.execute();
+    List<String> originalIncludes = includes;
+    List<String> originalExcludes = excludes;
+    long start = System.currentTimeMillis();
+    ModuleSuites moduleSuites = groupTestsByModule && !isSkipExecution() ? groupTestsByModule() : null;
+    try {
+      if (moduleSuites == null || moduleSuites.getSuiteTestClasses().isEmpty()) {
+        super.execute();
+      } else {
+        executeModuleSuites(moduleSuites);
+      }
+    } finally {
+      includes = originalIncludes;
+      excludes = originalExcludes;
+      if (moduleSuites != null) {
+        try {
+          moduleSuites.delete();
+        } catch (IOException e) {
+          getLog().warn("Could not delete generated module suites: " + e.getMessage());
+        }
+        recordTestStatistics(moduleSuites, start);
+      }
+    }
+  }
+
+  /**
+   * Runs the module suites, along with the test classes that haven't been grouped.
+   * <p>
+   * The directory of the suites is added to the test dependencies of the project, and to {@code dependenciesToScan},
+   * such that Surefire runs the suites and puts them in the classpath after the test and main classes.
+   */
+  private void executeModuleSuites(ModuleSuites moduleSuites) throws MojoExecutionException, MojoFailureException {
+    Set<Artifact> originalArtifacts = getProject().getArtifacts();
+    String[] originalDependenciesToScan = getDependenciesToScan();
+    Set<Artifact> artifacts = new LinkedHashSet<>(originalArtifacts);
+    artifacts.add(moduleSuites.getArtifact());
+    List<String> dependenciesToScan = new ArrayList<>();
+    if (originalDependenciesToScan != null) {
+      dependenciesToScan.addAll(Arrays.asList(originalDependenciesToScan));
+    }
+    dependenciesToScan.add(ModuleSuites.ARTIFACT_KEY);
+    getProject().setArtifacts(artifacts);
+    setDependenciesToScan(dependenciesToScan.toArray(new String[0]));
+    try {
+      super.execute();
+    } finally {
+      getProject().setArtifacts(originalArtifacts);
+      setDependenciesToScan(originalDependenciesToScan);
+    }
+  }
+
+  private File getTestStatisticsFile() {
+    return new File(getProject().getBuild().getDirectory(), "gwt-tests/test-statistics");
+  }
+
+  /**
+   * Generates the module suites, in {@code ${project.build.directory}/gwt-tests/suites}, and updates {@link #includes}
+   * and {@link #excludes} to run them in place of the grouped test classes.
+   * <p>
+   * When there are more modules than forks, and timings have been recorded by previous runs, the modules are
+   * balanced in one suite per fork; otherwise there's one suite per module.
+   *
+   * @return the generated suites, or {@code null} if tests aren't grouped
+   */
+  private @Nullable ModuleSuites groupTestsByModule() throws MojoExecutionException {
+    if (!isForking() || getEffectiveForkCount() < 2 || !isReuseForks()) {
+      getLog().debug("Tests aren't run in several reused forks, not grouping them by module");
+      return null;
+    }
+    if (test != null || includesFile != null || excludesFile != null || hasSuiteXmlFiles()) {
+      getLog().info("Tests are selected with test, includesFile, excludesFile or suiteXmlFiles, "
+          + "not grouping them by module");
+      return null;
+    }
+    if (!testClassesDirectory.isDirectory()) {
+      return null;
+    }
+    List<String> effectiveIncludes = includes == null || includes.isEmpty()
+        ? Arrays.asList(getDefaultIncludes()) : includes;
+    List<String> effectiveExcludes = excludes == null || excludes.isEmpty()
+        ? Collections.singletonList("**/*$*") : excludes;
+
+    ModuleSuites moduleSuites = new ModuleSuites(testClassesDirectory,
+        new File(getProject().getBuild().getDirectory(), "gwt-tests/suites"));
+    Map<String, List<String>> suites = new LinkedHashMap<>();
+    try {
+      // Delete suites left over by an interrupted build
+      moduleSuites.delete();
+      List<String> testClasses = new DirectoryScanner(testClassesDirectory,
+          new TestListResolver(effectiveIncludes, effectiveExcludes)).scan().getClasses();
+      Map<String, List<String>> groups = moduleSuites.group(testClasses);
+      TestStatistics statistics = TestStatistics.read(getTestStatisticsFile());
+      if (groups.size() > getEffectiveForkCount() && !statistics.isEmpty()) {
+        List<List<String>> batches = statistics.balance(groups, getEffectiveForkCount());
+        for (int i = 0; i < batches.size(); i++) {
+          suites.put("Batch" + (i + 1), batches.get(i));
+        }
+      } else {
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+          // a single class doesn't need a suite to be run by a single fork
+          if (group.getValue().size() > 1) {
+            suites.put(group.getKey(), group.getValue());
+          }
+        }
+      }
+      if (suites.isEmpty()) {
+        return moduleSuites;
+      }
+      moduleSuites.write(suites);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Error grouping tests by module: " + e.getMessage(), e);
+    }
+
+    includes = new ArrayList<>(effectiveIncludes);
+    includes.add(ModuleSuites.PACKAGE + "/*.class");
+    excludes = new ArrayList<>(effectiveExcludes);
+    for (String testClass : moduleSuites.getSuiteTestClasses()) {
+      excludes.add(testClass.replace('.', '/') + ".class");
+    }
+    getLog().info("Grouped " + moduleSuites.getSuiteTestClasses().size() + " test classes into " + suites.size()
+        + " module suites");
+    return moduleSuites;
+  }
+
+  /**
+   * Runs the tests in a {@link TestDaemon}, selecting them with {@link #test} if set, or {@link #includes} and
+   * {@link #excludes} otherwise.
+   *
+   * @return {@code false} if the daemon doesn't support this version of GWT, and the tests haven't been run
+   */
+  private boolean executeInDaemon() throws MojoExecutionException, MojoFailureException {
+    if (!testClassesDirectory.isDirectory()) {
+      getLog().info("No tests to run.");
+      return true;
+    }
+    TestListResolver resolver;
+    if (test != null) {
+      resolver = new TestListResolver(test);
+    } else {
+      resolver = new TestListResolver(
+          includes == null || includes.isEmpty() ? Arrays.asList(getDefaultIncludes()) : includes,
+          excludes == null || excludes.isEmpty() ? Collections.singletonList("**/*$*") : excludes);
+    }
+    List<String> testClasses = new DirectoryScanner(testClassesDirectory, resolver).scan().getClasses();
+
+    List<String> classpath = new ArrayList<>();
+    try {
+      classpath.addAll(getProject().getTestClasspathElements());
+    } catch (DependencyResolutionRequiredException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+    classpath.addAll(Arrays.asList(getAdditionalClasspathElements()));
+    List<String> properties = new ArrayList<>();
+    for (Map.Entry<String, String> property : new TreeMap<>(getSystemPropertyVariables()).entrySet()) {
+      if (property.getValue() != null) {
+        properties.add(property.getKey());
+        properties.add(property.getValue());
+      }
+    }
+
+    List<String> jvmArgs = StringUtils.isBlank(getArgLine())
+        ? Collections.emptyList() : Arrays.asList(getArgLine().trim().split("\\s+"));
+    // Same JVM as Surefire forks: the jvm parameter, then the jdkToolchain, then the toolchain from the build context.
+    String executable = new CommandLine(getLog(), getProject(), getSession(), getToolchainManager(), getJdkToolchain(),
+        getJvm()).getExecutable();
+    List<String> key = new ArrayList<>(properties);
+    for (String entry : classpath) {
+      key.add(getClasspathEntryKey(entry));
+    }
+
+    List<String> selected = new ArrayList<>();
+    int exitCode = new CompilerDaemonClient(getLog(), executable, jvmArgs, TestDaemon.class, "GWT test daemon", key,
+        daemonIdleTimeout).execute(new CompilerDaemonClient.Exchange() {
+          @Override
+          public void writeRequest(DataOutputStream request) throws IOException {
+            CompilerDaemon.writeList(request, classpath);
+            CompilerDaemon.writeList(request, properties);
+            CompilerDaemon.writeList(request, testClasses);
+          }
+
+          @Override
+          public void handleFrame(int type, DataInputStream response, DataOutputStream request) throws IOException {
+            if (type != TestDaemon.TESTS) {
+              throw new IOException("Unexpected frame of type " + type);
+            }
+            for (String name : CompilerDaemon.readList(response)) {
+              int hash = name.indexOf('#');
+              String testClassFile = (hash < 0 ? name : name.substring(0, hash)).replace('.', '/') + ".class";
+              if (resolver.shouldRun(testClassFile, hash < 0 ? null : name.substring(hash + 1))) {
+                selected.add(name);
+              }
+            }
+            CompilerDaemon.writeList(request, selected);
+            request.flush();
+          }
+        });
+
+    if (exitCode == TestDaemon.UNSUPPORTED) {
+      getLog().warn("Cannot run tests in the GWT test daemon, running them in Surefire forks instead");
+      daemon = false;
+      return false;
+    }
+    if (exitCode != 0) {
+      if (testFailureIgnore) {
+        getLog().error("There are test failures.");
+      } else {
+        throw new MojoFailureException("There are test failures.");
+      }
+    } else if (selected.isEmpty()) {
+      if (test != null && getFailIfNoSpecifiedTests()) {
+        throw new MojoFailureException("No tests matching pattern \"" + test
+            + "\" were executed! (Set -Dsurefire.failIfNoSpecifiedTests=false to ignore this error.)");
+      }
+      getLog().info("No tests to run.");
+    }
+    return true;
+  }
+
+  private void recordTestStatistics(ModuleSuites moduleSuites, long start) {
+    File statisticsFile = getTestStatisticsFile();
+    try {
+      TestStatistics statistics = TestStatistics.read(statisticsFile);
+      statistics.record(getReportsDirectory(), start, moduleSuites.getTestModules());
+      statistics.write(statisticsFile);
+    } catch (IOException e) {
+      getLog().warn("Could not record test timings: " + e.getMessage());
+    }
   }
 
   @Override
@@ -1058,22 +1413,22 @@ public class TestMojo extends AbstractSurefireMojo implements SurefireReportPara
 
   @Override
   public File getWarDir() {
-    return outDir;
+    return forkDir(outDir);
   }
 
   @Override
   public File getWorkDir() {
-    return workDir;
+    return forkDir(workDir);
   }
 
   @Override
   public File getDeployDir() {
-    return deploy;
+    return forkDir(deploy);
   }
 
   @Override
   public @Nullable File getExtraDir() {
-    return extra;
+    return extra == null ? null : forkDir(extra);
   }
 
   @Override
@@ -0,0 +1,212 @@
+package net.ltgt.gwt.maven;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+/**
+ * Timings of GWT tests, persisted between builds: the time to compile each module, and the time to run the tests of
+ * each class once its module is compiled.
+ * <p>
+ * Timings are read from the Surefire reports. The first test of a module in a report also compiles the module; its
+ * compile time is estimated as the difference between that test and the mean of the other tests of the module.
+ * <p>
+ * They're used to balance the modules across forks, such that all forks finish at about the same time.
+ */
+class TestStatistics {
+  private static final String HEADER = "# GWT test statistics, version 1";
+  private static final String MODULE = "module";
+  private static final String CLASS = "class";
+
+  private final Map<String, Long> compileTimes = new TreeMap<>();
+  private final Map<String, Long> runTimes = new TreeMap<>();
+
+  boolean isEmpty() {
+    return compileTimes.isEmpty();
+  }
+
+  /**
+   * Estimates the time to compile the module and run the given test classes, in milliseconds. Unknown modules and
+   * classes are assumed to take the mean time of the known ones.
+   */
+  long estimate(String moduleName, List<String> testClasses) {
+    Long compileTime = compileTimes.get(moduleName);
+    long estimate = compileTime != null ? compileTime : mean(compileTimes);
+    for (String testClass : testClasses) {
+      Long runTime = runTimes.get(testClass);
+      estimate += runTime != null ? runTime : mean(runTimes);
+    }
+    return estimate;
+  }
+
+  private static long mean(Map<String, Long> times) {
+    if (times.isEmpty()) {
+      return 0;
+    }
+    long sum = 0;
+    for (long time : times.values()) {
+      sum += time;
+    }
+    return sum / times.size();
+  }
+
+  /**
+   * Distributes the modules in the given number of batches, with about the same estimated time, longest modules
+   * first.
+   *
+   * @return the test classes of each batch, grouped by module
+   */
+  List<List<String>> balance(Map<String, List<String>> groups, int batches) {
+    Map<String, Long> estimates = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+      estimates.put(group.getKey(), estimate(group.getKey(), group.getValue()));
+    }
+    List<String> modules = new ArrayList<>(groups.keySet());
+    modules.sort(Comparator.comparing(estimates::get, Comparator.reverseOrder()));
+
+    List<List<String>> result = new ArrayList<>();
+    long[] totals = new long[Math.min(batches, modules.size())];
+    for (int i = 0; i < totals.length; i++) {
+      result.add(new ArrayList<>());
+    }
+    for (String module : modules) {
+      int lightest = 0;
+      for (int i = 1; i < totals.length; i++) {
+        if (totals[i] < totals[lightest]) {
+          lightest = i;
+        }
+      }
+      result.get(lightest).addAll(groups.get(module));
+      totals[lightest] += estimates.get(module);
+    }
+    return result;
+  }
+
+  /**
+   * Records the timings from the Surefire reports written since the given time.
+   *
+   * @param modules the module of each test class; tests of other classes are ignored
+   */
+  void record(File reportsDirectory, long since, Map<String, String> modules) throws IOException {
+    File[] reports = reportsDirectory.listFiles((dir, name) -> name.startsWith("TEST-") && name.endsWith(".xml"));
+    if (reports == null) {
+      return;
+    }
+    for (File report : reports) {
+      if (report.lastModified() < since) {
+        continue;
+      }
+      Xpp3Dom testsuite;
+      try (Reader reader = Files.newBufferedReader(report.toPath(), StandardCharsets.UTF_8)) {
+        testsuite = Xpp3DomBuilder.build(reader);
+      } catch (XmlPullParserException e) {
+        throw new IOException("Could not parse " + report + ": " + e.getMessage(), e);
+      }
+      record(testsuite, modules);
+    }
+  }
+
+  private void record(Xpp3Dom testsuite, Map<String, String> modules) {
+    // test times of each class, then of each module, in the order tests were run
+    Map<String, List<Long>> classTimes = new LinkedHashMap<>();
+    Map<String, List<Long>> moduleTimes = new LinkedHashMap<>();
+    Map<String, String> firstClasses = new LinkedHashMap<>();
+    for (Xpp3Dom testcase : testsuite.getChildren("testcase")) {
+      String className = testcase.getAttribute("classname");
+      String time = testcase.getAttribute("time");
+      String module = className == null ? null : modules.get(className);
+      if (module == null || time == null) {
+        continue;
+      }
+      long millis;
+      try {
+        millis = Math.round(Double.parseDouble(time.replace(",", "")) * 1000);
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      classTimes.computeIfAbsent(className, k -> new ArrayList<>()).add(millis);
+      moduleTimes.computeIfAbsent(module, k -> new ArrayList<>()).add(millis);
+      firstClasses.putIfAbsent(module, className);
+    }
+    Map<String, Long> compiles = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Long>> entry : moduleTimes.entrySet()) {
+      List<Long> times = entry.getValue();
+      long others = 0;
+      for (int i = 1; i < times.size(); i++) {
+        others += times.get(i);
+      }
+      long compileTime = times.get(0) - (times.size() > 1 ? others / (times.size() - 1) : 0);
+      compiles.put(entry.getKey(), Math.max(0, compileTime));
+      compileTimes.put(entry.getKey(), Math.max(0, compileTime));
+    }
+    for (Map.Entry<String, List<Long>> entry : classTimes.entrySet()) {
+      long runTime = 0;
+      for (long time : entry.getValue()) {
+        runTime += time;
+      }
+      String module = modules.get(entry.getKey());
+      if (entry.getKey().equals(firstClasses.get(module))) {
+        runTime -= compiles.get(module);
+      }
+      runTimes.put(entry.getKey(), Math.max(0, runTime));
+    }
+  }
+
+  /**
+   * Reads the statistics from the given file, returning empty statistics if the file doesn't exist or is invalid.
+   */
+  static TestStatistics read(File file) throws IOException {
+    TestStatistics statistics = new TestStatistics();
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      if (!HEADER.equals(reader.readLine())) {
+        return new TestStatistics();
+      }
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        String[] parts = line.split("\t", 3);
+        if (parts.length != 3) {
+          return new TestStatistics();
+        }
+        if (MODULE.equals(parts[0])) {
+          statistics.compileTimes.put(parts[2], Long.parseLong(parts[1]));
+        } else if (CLASS.equals(parts[0])) {
+          statistics.runTimes.put(parts[2], Long.parseLong(parts[1]));
+        } else {
+          return new TestStatistics();
+        }
+      }
+    } catch (FileNotFoundException | NoSuchFileException | NumberFormatException e) {
+      return new TestStatistics();
+    }
+    return statistics;
+  }
+
+  void write(File file) throws IOException {
+    file.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Map.Entry<String, Long> entry : compileTimes.entrySet()) {
+        writer.write(MODULE + '\t' + entry.getValue() + '\t' + entry.getKey() + '\n');
+      }
+      for (Map.Entry<String, Long> entry : runTimes.entrySet()) {
+        writer.write(CLASS + '\t' + entry.getValue() + '\t' + entry.getKey() + '\n');
+      }
+    }
+  }
+}